@@ -0,0 +1,67 @@
+package com.example.Config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 数据源配置
+ * 主库处理读写事务；配置了 spring.datasource.replica.url 时，只读事务路由到副本
+ * 只读事务由 JpaTransactionManager 将 Hibernate 会话设为 FlushMode.MANUAL 并默认只读，
+ * 不再刷新也不保留脏检查快照
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    /**
+     * 主库连接池
+     * 连接信息沿用 spring.datasource，连接池参数绑定 spring.datasource.druid
+     */
+    @Bean(initMethod = "init")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource primaryDataSource(DataSourceProperties properties) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setDriverClassName(properties.getDriverClassName());
+        dataSource.setUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        return dataSource;
+    }
+
+    /**
+     * 只读副本连接池，参数绑定 spring.datasource.replica，用户名密码默认与主库相同
+     * 不在启动时初始化，副本不可用时不影响应用启动
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.datasource.replica", name = "url")
+    @ConfigurationProperties("spring.datasource.replica")
+    public DruidDataSource replicaDataSource(DataSourceProperties properties) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setDriverClassName(properties.getDriverClassName());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        return dataSource;
+    }
+
+    /**
+     * 应用使用的数据源
+     * 延迟获取连接，等事务的只读标记设置后再由路由数据源选择主库或副本
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        ReadWriteRoutingDataSource routingDataSource =
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource.getIfAvailable());
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.Config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 快速启动配置（fast-start）
+ * 很少使用的Bean（springdoc等）改为首次使用时创建；连接池启动时不建立连接，
+ * 应用就绪后在后台线程预热，不占用启动时间
+ * 其余配置见 application-fast-start.yml
+ */
+@Configuration
+@Profile("fast-start")
+@Slf4j
+public class FastStartConfiguration {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource; // 主库连接池
+
+    @Value("${startup.warm-up.connections:${spring.datasource.druid.min-idle:10}}")
+    private int warmUpConnections; // 预热的连接数
+
+    /**
+     * 把startup.lazy-packages下的Bean设为延迟初始化
+     * 按Bean的类名匹配，@Bean方法定义的Bean按声明它的配置类匹配
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                                      .bind("startup.lazy-packages", Bindable.listOf(String.class))
+                                      .orElse(List.of("org.springdoc."));
+        return beanFactory -> {
+            int count = 0;
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String className = definition.getBeanClassName();
+                if (className == null && definition instanceof AnnotatedBeanDefinition annotated
+                        && annotated.getFactoryMethodMetadata() != null) {
+                    className = annotated.getFactoryMethodMetadata()
+                                         .getDeclaringClassName();
+                }
+                if (className != null && packages.stream()
+                                                  .anyMatch(className::startsWith)) {
+                    definition.setLazyInit(true);
+                    count++;
+                }
+            }
+            log.info("延迟初始化{}个Bean: {}", count, packages);
+        };
+    }
+
+    /**
+     * 应用就绪后在后台建立连接，先于其他就绪监听器启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void warmUpDataSource() {
+        Thread thread = new Thread(this::warmUp, "datasource-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        List<Connection> connections = new ArrayList<>(warmUpConnections);
+        try {
+            // 同时持有，连接池才会新建而不是复用同一个连接
+            for (int i = 0; i < warmUpConnections; i++) {
+                connections.add(primaryDataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            log.warn("连接池预热失败: {}", e.getMessage());
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("归还连接失败: {}", e.getMessage());
+                }
+            }
+        }
+        log.info("连接池预热完成，{}个连接，耗时{}ms", connections.size(),
+                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.Config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 读写路由数据源
+ * 当前事务为只读（@Transactional(readOnly = true)）时路由到只读副本，否则使用主库；
+ * 副本未配置或获取连接失败时回退到主库
+ * 需要包装在 LazyConnectionDataSourceProxy 中使用，保证真正获取连接时事务的只读标记已经设置
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * 路由目标
+     */
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final DataSource primary; // 主库
+
+    /**
+     * @param primary 主库
+     * @param replica 只读副本，可以为null
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        if (replica != null) {
+            targets.put(Route.REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        // 找不到副本时使用主库
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(true);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) {
+            return primary.getConnection();
+        }
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            log.warn("只读副本获取连接失败，回退到主库: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+}
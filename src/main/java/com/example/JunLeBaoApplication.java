@@ -2,12 +2,21 @@ package com.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class JunLeBaoApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(JunLeBaoApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(JunLeBaoApplication.class, args);
+        // 启动基准测试用：run返回时ApplicationReadyEvent的监听器（各内存索引的重建等）均已执行完，
+        // 与spring.context.exit=onRefresh不同，计入了就绪时同步执行的重建
+        if (context.getEnvironment()
+                   .getProperty("startup.exit-when-ready", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
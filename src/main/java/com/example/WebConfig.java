@@ -1,6 +1,10 @@
 package com.example;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -16,4 +20,13 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowCredentials(false);
 
     }
+
+    /**
+     * CBOR二进制格式，与JSON共用Spring Boot的Jackson配置（日期格式、时区等）
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory())
+                                                                  .build());
+    }
 }
\ No newline at end of file
@@ -1,15 +1,30 @@
 package com.example.modules;
 
+import com.example.exception.MyException;
+import com.querydsl.core.types.Expression;
 import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // 2. 基础Repository接口
 public interface BaseRepository<T, Q extends BaseQuery> {
+    /**
+     * 游标读取时每次从数据库拉取的行数（需要连接串开启useCursorFetch）
+     */
+    int STREAM_FETCH_SIZE = 500;
+
     // 提供默认实现
     default Optional<T> findOne(Q query) {
         return Optional.ofNullable(buildBaseQuery(query).fetchOne());
@@ -20,13 +35,110 @@ public interface BaseRepository<T, Q extends BaseQuery> {
         return jpaQuery.fetch();
     }
 
+    /**
+     * 流式查询
+     * 通过数据库游标逐批读取结果，调用方需在事务内消费并关闭返回的Stream
+     */
+    default Stream<T> findStream(Q query) {
+        return buildBaseQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .stream();
+    }
+
     // 分页查询
     default Slice<T> findPage(Q query, Pageable pageable) {
-        JPAQuery<T> jpaQuery = buildBaseQuery(query);
+        return fetchSlice(buildBaseQuery(query), pageable);
+    }
+
+    /**
+     * 投影查询
+     * 只查询投影涉及的列并直接构造DTO，结果不是托管实体，不进入持久化上下文，也没有脏检查开销
+     * 关联对象的字段直接在投影中通过路径引用（如 shop.priceRule.name），
+     * query中不要再指定fetch join的includes，否则没有可供抓取的实体
+     *
+     * @param query      查询条件
+     * @param projection 投影表达式，一般为 Projections.constructor(...)
+     * @return DTO列表
+     */
+    default <P> List<P> findList(Q query, Expression<P> projection) {
+        return buildProjectionQuery(query, projection).fetch();
+    }
+
+    /**
+     * 投影的流式查询，调用方需在事务内消费并关闭返回的Stream
+     */
+    default <P> Stream<P> findStream(Q query, Expression<P> projection) {
+        return buildProjectionQuery(query, projection)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .stream();
+    }
+
+    /**
+     * 投影的分页查询
+     */
+    default <P> Slice<P> findPage(Q query, Pageable pageable, Expression<P> projection) {
+        return fetchSlice(buildProjectionQuery(query, projection), pageable);
+    }
 
+    /**
+     * 批量部分更新
+     * 用一次IN查询加载全部目标实体，再把每个更新请求应用到对应实体（如MapStruct的partialUpdate），
+     * 不再逐条findById + save；实体是托管状态，修改在flush时通过脏检查写回，
+     * 配合hibernate.jdbc.batch_size和order_updates以JDBC批处理发送。需要在事务内调用
+     *
+     * @param updates    更新请求
+     * @param idOf       取更新请求中的实体ID
+     * @param idsQuery   按ID列表构造查询条件，可同时指定需要的includes
+     * @param entityIdOf 取实体ID
+     * @param apply      把更新请求应用到实体
+     * @param name       实体名称，用于ID不存在时的错误信息
+     * @return 更新后的实体，与updates顺序一致
+     */
+    default <D> List<T> updateAll(List<D> updates,
+                                  Function<D, Integer> idOf,
+                                  Function<List<Integer>, Q> idsQuery,
+                                  Function<T, Integer> entityIdOf,
+                                  BiConsumer<D, T> apply,
+                                  String name) {
+        if (updates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> ids = new ArrayList<>(updates.stream()
+                                                   .map(idOf)
+                                                   .collect(Collectors.toCollection(LinkedHashSet::new)));
+        Map<Integer, T> entities = findList(idsQuery.apply(ids)).stream()
+                                                                .collect(Collectors.toMap(entityIdOf, Function.identity(),
+                                                                                          (first, second) -> first));
+        List<Integer> missing = ids.stream()
+                                   .filter(id -> !entities.containsKey(id))
+                                   .toList();
+        if (!missing.isEmpty()) {
+            throw new MyException(name + "不存在: " + missing);
+        }
+
+        List<T> result = new ArrayList<>(updates.size());
+        for (D update : updates) {
+            T entity = entities.get(idOf.apply(update));
+            apply.accept(update, entity);
+            result.add(entity);
+        }
+        return result;
+    }
 
-        // 执行分页查询
-        List<T> content = jpaQuery
+    JPAQuery<T> buildBaseQuery(Q query);
+
+    private <P> JPAQuery<P> buildProjectionQuery(Q query, Expression<P> projection) {
+        JPAQuery<T> jpaQuery = buildBaseQuery(query);
+        // 投影只经过单值关联，不会产生重复行；
+        // 去掉distinct也避免MySQL要求排序列必须出现在select列表中
+        jpaQuery.getMetadata()
+                .setDistinct(false);
+        return jpaQuery.select(projection);
+    }
+
+    private static <R> Slice<R> fetchSlice(JPAQuery<R> jpaQuery, Pageable pageable) {
+        // 多取一条用于判断是否还有下一页
+        List<R> content = jpaQuery
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize() + 1)
                 .fetch();
@@ -39,7 +151,6 @@ public interface BaseRepository<T, Q extends BaseQuery> {
         return new SliceImpl<>(content, pageable, hasNext);
     }
 
-    JPAQuery<T> buildBaseQuery(Q query);
 
 
 
@@ -1,16 +1,20 @@
 package com.example.modules.controller;
 
 import com.example.modules.dto.batch.BatchUpdateDto;
+import com.example.modules.dto.batch.ExpiryReportDto;
 import com.example.modules.entity.Batch;
 import com.example.modules.query.BatchQuery;
+import com.example.modules.service.BatchExpiryService;
 import com.example.modules.service.BatchService;
+import com.example.modules.utils.StreamingJsonWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * 批次控制器
@@ -24,20 +28,25 @@ public class BatchController {
     @Autowired
     private BatchService batchService;
 
+    @Autowired
+    private StreamingJsonWriter streamingJsonWriter;
+
+    @Autowired
+    private BatchExpiryService batchExpiryService;
+
     /**
      * 查询批次列表
      *
+     * 结果通过数据库游标流式输出，不在内存中构建完整列表；
+     * 批次和商品字段通过投影查询，不加载实体
+     *
      * @param query 查询条件
      * @return 批次列表
      */
     @Operation(summary = "查询批次列表", description = "根据查询条件获取批次列表")
     @PostMapping("/list")
-    public List<Batch> getBatches(@RequestBody BatchQuery query) {
-        // 默认加载商品信息
-        if (query.getIncludes() == null) {
-            query.setIncludes(Set.of(BatchQuery.Include.PRODUCT));
-        }
-        return batchService.findList(query);
+    public ResponseEntity<StreamingResponseBody> getBatches(@RequestBody BatchQuery query) {
+        return streamingJsonWriter.array(() -> batchService.findDtoStream(query));
     }
 
     /**
@@ -52,6 +61,30 @@ public class BatchController {
         return batchService.findValidBatches(productId);
     }
 
+    /**
+     * 查询临期批次
+     * 从内存过期索引中读取，不扫描批次表
+     *
+     * @param days 天数，默认30天
+     * @return N天内到期（含已过期）且仍有库存的批次及受影响的库存
+     */
+    @Operation(summary = "查询临期批次", description = "查询N天内到期（含已过期）且仍有库存的批次及临期库存数量和成本")
+    @GetMapping("/expiring")
+    public ExpiryReportDto getExpiringBatches(@RequestParam(defaultValue = "30") int days) {
+        return batchExpiryService.findExpiring(days);
+    }
+
+    /**
+     * 获取最近一次定时生成的临期报告
+     *
+     * @return 临期批次报告
+     */
+    @Operation(summary = "获取临期报告", description = "获取最近一次定时任务生成的临期批次报告")
+    @GetMapping("/expiring/report")
+    public ExpiryReportDto getExpiryReport() {
+        return batchExpiryService.getLastReport();
+    }
+
     /**
      * 查询商品的所有批次
      *
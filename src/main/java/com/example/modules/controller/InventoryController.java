@@ -1,16 +1,23 @@
 package com.example.modules.controller;
 
+import com.example.modules.dto.inventory.InventoryAsOfDto;
 import com.example.modules.dto.inventory.InventoryUpdateDto;
 import com.example.modules.mapper.InventoryMapper;
 import com.example.modules.service.InventoryService;
+import com.example.modules.service.InventorySnapshotService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -26,6 +33,8 @@ public class InventoryController {
     private InventoryService inventoryService;
     @Autowired
     private InventoryMapper inventoryMapper;
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
 
     /**
      * 批量更新库存信息
@@ -38,6 +47,21 @@ public class InventoryController {
         inventoryService.batchUpdate(inventories);
     }
 
+    /**
+     * 查询某一天结束时的库存
+     *
+     * @param date      日期
+     * @param productId 商品ID（可选）
+     * @return 历史库存
+     */
+    @Operation(summary = "查询历史库存", description = "从最近的库存快照回放库存变动，得到指定日期结束时各商品、批次的库存")
+    @GetMapping("/as-of")
+    public InventoryAsOfDto getInventoryAsOf(
+            @Parameter(description = "日期") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "商品ID") @RequestParam(required = false) Integer productId) {
+        return inventorySnapshotService.getInventoryAsOf(date, productId);
+    }
+
 
 
 
@@ -4,11 +4,14 @@ import com.example.modules.entity.InventoryTransaction;
 import com.example.modules.entity.OperationType;
 import com.example.modules.query.InventoryTransactionQuery;
 import com.example.modules.service.InventoryTransactionService;
+import com.example.modules.utils.StreamingJsonWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,20 +30,25 @@ public class InventoryTransactionController {
     @Autowired
     private InventoryTransactionService transactionService;
 
+    @Autowired
+    private StreamingJsonWriter streamingJsonWriter;
+
     /**
      * 查询库存变动记录列表
      *
+     * 结果通过数据库游标流式输出，不在内存中构建完整列表
+     *
      * @param query 查询条件
      * @return 库存变动记录列表
      */
     @Operation(summary = "查询库存变动记录", description = "根据查询条件获取库存变动记录列表")
     @PostMapping("/list")
-    public List<InventoryTransaction> getTransactions(@RequestBody InventoryTransactionQuery query) {
+    public ResponseEntity<StreamingResponseBody> getTransactions(@RequestBody InventoryTransactionQuery query) {
         // 默认加载商品信息
         if (query.getIncludes() == null) {
             query.setIncludes(Set.of(InventoryTransactionQuery.Include.PRODUCT));
         }
-        return transactionService.findList(query);
+        return streamingJsonWriter.array(() -> transactionService.findStream(query));
     }
 
     /**
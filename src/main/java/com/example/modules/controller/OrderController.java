@@ -3,8 +3,6 @@ package com.example.modules.controller;
 import com.example.modules.dto.order.OrderCreateRequest;
 import com.example.modules.dto.order.OrderDto;
 import com.example.modules.dto.order.OrderListRequest;
-import com.example.modules.entity.Order;
-import com.example.modules.mapper.OrderMapper;
 import com.example.modules.query.OrderQuery;
 import com.example.modules.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,7 +14,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * 订单控制器
@@ -31,16 +28,13 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
-    @Autowired
-    private OrderMapper orderMapper;
-
     /**
      * 查询订单列表，支持动态加载 Shop 和 OrderDetail，以及按时间范围过滤
      *
      * @return 订单列表
      */
     @Operation(summary = "分页查询订单列表",
-            description = "支持按店铺和时间范围筛选订单，默认关联加载店铺信息")
+            description = "支持按店铺和时间范围筛选订单，返回店铺信息及订单明细")
     @PostMapping("/list")
     public List<OrderDto> getOrders(@RequestBody OrderListRequest request) {
         log.info("查询订单列表: {}", request);
@@ -49,7 +43,6 @@ public class OrderController {
                                      .startTime(request.getStartDate())
                                      .endTime(request.getEndDate())
                                      .shopId(request.getShopId())
-                                     .includes(Set.of(OrderQuery.Include.SHOP))
                                      .build();
 
         Pageable pageable = PageRequest.of(
@@ -57,9 +50,8 @@ public class OrderController {
                 request.getSize()
         );
 
-        List<Order> orders = orderService.findPage(query, pageable)
-                                         .toList();
-        return orderMapper.toOrderDTOList(orders);
+        // 投影查询，订单明细一次性批量加载
+        return orderService.findDtoPage(query, pageable);
     }
 
     /**
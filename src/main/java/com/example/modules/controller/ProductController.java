@@ -2,13 +2,17 @@ package com.example.modules.controller;
 
 import com.example.modules.dto.product.ProductDto;
 import com.example.modules.dto.product.ProductSaleInfoDTO;
+import com.example.modules.dto.product.ProductSearchDto;
 import com.example.modules.dto.product.ProductUpdateDto;
 import com.example.modules.mapper.ProductMapper;
+import com.example.modules.service.ProductSearchIndex;
 import com.example.modules.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -25,6 +29,8 @@ public class ProductController {
 
     @Autowired
     private ProductService productService;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
 
 
     /**
@@ -69,6 +75,22 @@ public class ProductController {
         return productService.getProductSaleList(shopId);
     }
 
+    /**
+     * 商品输入联想搜索
+     *
+     * @param keyword 商品名称、拼音首字母或全拼
+     * @param page    页码，从0开始
+     * @param size    每页条数
+     * @return 按匹配程度排序的商品
+     */
+    @GetMapping("/search")
+    @Operation(summary = "搜索商品", description = "按名称、拼音首字母或全拼搜索商品，按匹配程度排序并分页")
+    public Slice<ProductSearchDto> search(@RequestParam String keyword,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size) {
+        return productSearchIndex.search(keyword, PageRequest.of(page, size));
+    }
+
     // /**
     //  * 转换商品的批次管理状态
     //  *
@@ -0,0 +1,65 @@
+package com.example.modules.controller;
+
+import com.example.modules.dto.receivable.ReceivableAgingDto;
+import com.example.modules.dto.receivable.ReceivableEntryDto;
+import com.example.modules.dto.receivable.ReceivableRequestDto;
+import com.example.modules.service.ReceivableService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 应收账款控制器
+ * 处理商家欠款的记账、流水查询和账龄报表
+ */
+@RestController
+@RequestMapping("/receivable")
+@Tag(name = "receivable", description = "应收账款处理器")
+public class ReceivableController {
+
+    @Autowired
+    private ReceivableService receivableService;
+
+    /**
+     * 记账
+     *
+     * @param request 记账请求
+     * @return 流水，包含记账后的欠款余额
+     */
+    @PostMapping("/record")
+    @Operation(summary = "应收账款记账", description = "记录销售欠款、收款或调整，商家欠款随之更新")
+    public ReceivableEntryDto record(@RequestBody ReceivableRequestDto request) {
+        return receivableService.record(request.getShopId(), request.getType(), request.getAmount(),
+                                        request.getOrderId(), request.getRemark());
+    }
+
+    /**
+     * 商家的应收账款流水
+     *
+     * @param shopId 商家ID
+     * @param page   页码，从0开始
+     * @param size   每页条数
+     * @return 流水，最新的在前
+     */
+    @GetMapping("/entries")
+    @Operation(summary = "查询应收账款流水", description = "分页查询商家的欠款流水及每笔记账后的余额，最新的在前")
+    public Slice<ReceivableEntryDto> entries(@RequestParam Integer shopId,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "20") int size) {
+        return receivableService.findEntries(shopId, PageRequest.of(page, size));
+    }
+
+    /**
+     * 账龄报表
+     *
+     * @return 各商家欠款按0-30、31-60、61-90、90天以上分段的金额
+     */
+    @GetMapping("/aging")
+    @Operation(summary = "应收账款账龄报表", description = "有欠款的商家及其欠款按发生天数分段的金额，收款按先进先出冲抵")
+    public ReceivableAgingDto aging() {
+        return receivableService.getAging();
+    }
+}
@@ -2,19 +2,29 @@ package com.example.modules.controller;
 
 import com.example.modules.dto.shop.ShopArrearsDto;
 import com.example.modules.dto.shop.ShopDto;
+import com.example.modules.dto.shop.ShopImportResultDto;
+import com.example.modules.dto.shop.ShopNearbyDto;
 import com.example.modules.dto.shop.ShopRequestDto;
+import com.example.modules.dto.shop.ShopRouteDto;
 import com.example.modules.dto.shop.ShopSimpleDto;
 import com.example.modules.entity.Shop;
 import com.example.modules.entity.ShopLocationDto;
 import com.example.modules.mapper.ShopMapper;
 import com.example.modules.query.ShopQuery;
+import com.example.modules.service.ShopGeoIndex;
+import com.example.modules.service.ShopImportService;
+import com.example.modules.service.ShopRouteService;
+import com.example.modules.service.ShopSearchIndex;
 import com.example.modules.service.ShopService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +44,14 @@ public class ShopController {
     private ShopService shopService;
     @Autowired
     private ShopMapper shopMapper;
+    @Autowired
+    private ShopGeoIndex shopGeoIndex;
+    @Autowired
+    private ShopRouteService shopRouteService;
+    @Autowired
+    private ShopSearchIndex shopSearchIndex;
+    @Autowired
+    private ShopImportService shopImportService;
 
     @Operation(summary = "新建店铺", description = "新建店铺")
     @PostMapping("/create")
@@ -42,6 +60,24 @@ public class ShopController {
     }
 
 
+    /**
+     * 批量导入店铺
+     * 请求体为CSV（text/csv，第一行为表头）或JSON数组（application/json）
+     *
+     * @param contentType 请求体类型
+     * @param body        请求体
+     * @return 导入结果，包含未导入的行及原因
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "批量导入店铺", description = "导入CSV或JSON格式的店铺，字段为名称、地址、价格规则（ID或名称）、经度、纬度，返回逐行的错误原因")
+    public ShopImportResultDto importShops(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                           InputStream body) {
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            return shopImportService.importJson(body);
+        }
+        return shopImportService.importCsv(body);
+    }
+
     @GetMapping("/arrears")
     @Operation(summary = "获取商家欠款数据")
     public List<ShopArrearsDto> arrears() {
@@ -79,14 +115,9 @@ public class ShopController {
 
         ShopQuery build = ShopQuery.builder()
                                    .isDel(false)
-                                   .includes(Set.of(ShopQuery.Include.PRICE_RULE))
                                    .build();
 
-        List<Shop> shops = shopService.findList(build);
-
-        return shops.stream()
-                    .map(shopMapper::toShopSimpleDto)
-                    .toList();
+        return shopService.findSimpleList(build);
 
     }
 
@@ -123,37 +154,30 @@ public class ShopController {
 
     /**
      * 按商家名称模糊查询
+     * 关键字为空时返回全部商家；否则从内存索引中按名称、地址、全拼和拼音首字母匹配
      *
-     * @param name 商家名称关键字（可选）
+     * @param name  商家名称关键字（可选）
+     * @param limit 关键字不为空时最多返回的商家数量
      * @return 匹配的商家简化信息列表，HTTP 状态码 200
      */
     @GetMapping("/search")
     @Operation(
             summary = "模糊查询商家",
-            description = "根据商家名称关键字进行模糊匹配查询，支持部分匹配"
+            description = "根据名称、地址、全拼或拼音首字母匹配商家，按匹配程度排序，支持部分匹配和相近匹配"
 
     )
     public List<ShopSimpleDto> searchShops(
 
-            @RequestParam(required = false) String name
+            @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "50") int limit
     ) {
-        // 实现逻辑：
-        // 1. 调用 Service 层方法，传递 name 参数
-        ShopQuery build = ShopQuery.builder()
-                                   .isDel(false)
-                                   .name(name)
-                                   .includes(Set.of(ShopQuery.Include.PRICE_RULE))
-                                   .build();
-
-        List<Shop> shops = shopService.findList(build);
-
-
-        // 2. 返回转换后的 ShopSimpleDto 列表
-        return shops.stream()
-                    .map(shopMapper::toShopSimpleDto)
-                    .collect(Collectors.toList());
-
-
+        if (name == null || name.isBlank()) {
+            ShopQuery build = ShopQuery.builder()
+                                       .isDel(false)
+                                       .build();
+            return shopService.findSimpleList(build);
+        }
+        return shopSearchIndex.search(name, limit);
     }
 
     @GetMapping("/locations")
@@ -163,10 +187,55 @@ public class ShopController {
                                    .isDel(false)
                                    .location(true)
                                    .build();
-        List<Shop> shops = shopService.findList(build);
-        return shops.stream()
-                    .map(shopMapper::toShopLocationDto)
-                    .toList();
+        return shopService.findLocationList(build);
+    }
+
+    /**
+     * 查询附近的店铺
+     *
+     * @param lat    纬度
+     * @param lng    经度
+     * @param radius 半径（米）
+     * @param limit  最多返回的店铺数量
+     * @return 按距离升序排列的店铺
+     */
+    @GetMapping("/nearby")
+    @Operation(summary = "查询附近店铺", description = "返回指定坐标一定半径内的店铺，按距离由近到远排序")
+    public List<ShopNearbyDto> findNearby(@RequestParam double lat,
+                                          @RequestParam double lng,
+                                          @RequestParam(defaultValue = "3000") double radius,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        return shopGeoIndex.findNearby(lat, lng, radius, limit);
+    }
+
+    /**
+     * 查询矩形范围内的店铺
+     *
+     * @return 范围内的店铺
+     */
+    @GetMapping("/within")
+    @Operation(summary = "查询范围内店铺", description = "返回经纬度矩形范围（如地图可视区域）内的店铺")
+    public List<ShopNearbyDto> findWithin(@RequestParam double minLat,
+                                          @RequestParam double minLng,
+                                          @RequestParam double maxLat,
+                                          @RequestParam double maxLng) {
+        return shopGeoIndex.findWithin(minLat, minLng, maxLat, maxLng);
+    }
+
+    /**
+     * 规划配送路线
+     *
+     * @param shopIds  需要配送的店铺ID
+     * @param startLat 出发点纬度（可选）
+     * @param startLng 出发点经度（可选）
+     * @return 按访问顺序排列的店铺
+     */
+    @PostMapping("/route")
+    @Operation(summary = "规划配送路线", description = "根据店铺坐标计算近似最短的访问顺序，未指定出发点时从第一个店铺出发")
+    public ShopRouteDto planRoute(@RequestBody List<Integer> shopIds,
+                                  @RequestParam(required = false) Double startLat,
+                                  @RequestParam(required = false) Double startLng) {
+        return shopRouteService.plan(shopIds, startLat, startLng);
     }
 
 }
@@ -1,19 +1,27 @@
 package com.example.modules.controller;
 
 import com.example.exception.MyException;
+import com.example.modules.dto.statistics.response.ColumnarSeriesDTO;
 import com.example.modules.dto.statistics.response.MovingAverageLineDTO;
+import com.example.modules.dto.statistics.response.ProductAbcDTO;
+import com.example.modules.dto.statistics.response.ProductRankingDTO;
 import com.example.modules.dto.statistics.response.SalesStatisticsDTO;
 import com.example.modules.dto.statistics.response.ShopStatisticsDTO;
 import com.example.modules.dto.statistics.request.MovingAverageLineRequest;
+import com.example.modules.service.ProductRankingService;
 import com.example.modules.service.StatisticsService;
 import com.example.modules.utils.DataExtractor;
 import com.example.modules.utils.ProfitExtractor;
 import com.example.modules.utils.QuantityExtractor;
 import com.example.modules.utils.SalesAmountExtractor;
+import com.example.modules.utils.StreamingJsonWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -27,6 +35,12 @@ public class StatisticsController {
     @Autowired
     private StatisticsService statisticsService;
 
+    @Autowired
+    private StreamingJsonWriter streamingJsonWriter;
+
+    @Autowired
+    private ProductRankingService productRankingService;
+
     @Operation(summary = "获取商家统计数据")
     @GetMapping("/shop")
     public List<ShopStatisticsDTO> getShopStatistics() {
@@ -42,13 +56,37 @@ public class StatisticsController {
         return statisticsService.calculateDateRangeStatistics(startDate, endDate);
     }
 
+    /**
+     * 获取每日统计数据
+     * 按天流式输出，响应结构与 Map<LocalDate, SalesStatisticsDTO> 相同
+     */
     @Operation(summary = "获取每日统计数据")
     @GetMapping("/daily")
-    public Map<LocalDate, SalesStatisticsDTO> getDailyStatistics(
+    public ResponseEntity<StreamingResponseBody> getDailyStatistics(
             @RequestParam LocalDate startDate,
             @RequestParam LocalDate endDate
     ) {
-        return statisticsService.calculateDailyStatistics(startDate, endDate);
+        return streamingJsonWriter.object(() -> statisticsService.streamDailyStatistics(startDate, endDate));
+    }
+
+    /**
+     * 获取商品销售排行
+     * 从内存中的滚动窗口读取，不查询数据库
+     */
+    @Operation(summary = "获取商品销售排行", description = "最近7、30或90天内按利润或销量排序的商品，附带按利润的ABC分类")
+    @GetMapping("/product-ranking")
+    public ProductRankingDTO getProductRanking(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "PROFIT") ProductRankingService.RankBy by,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return productRankingService.getRanking(days, by, limit);
+    }
+
+    @Operation(summary = "获取商品ABC分类", description = "最近7、30或90天内按利润贡献累计占比划分A、B、C类商品")
+    @GetMapping("/product-abc")
+    public ProductAbcDTO getProductAbc(@RequestParam(defaultValue = "30") int days) {
+        return productRankingService.getAbcClassification(days);
     }
 
     @Operation(summary = "获取产品移动平均线数据")
@@ -73,6 +111,14 @@ public class StatisticsController {
         );
     }
 
+    @Operation(summary = "获取产品移动平均线数据（列式）", description = "Accept为列式JSON或application/cbor时返回")
+    @PostMapping(value = "/products", produces = {ColumnarSeriesDTO.COLUMNAR_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ColumnarSeriesDTO getMovingAverageColumnar(
+            @RequestBody MovingAverageLineRequest request
+    ) {
+        return ColumnarSeriesDTO.from(getMovingAverage(request));
+    }
+
     @Operation(summary = "获取总体趋势数据")
     @GetMapping("/overall-trend")
     public MovingAverageLineDTO getOverallTrend(
@@ -87,6 +133,20 @@ public class StatisticsController {
         );
     }
 
+    @Operation(summary = "获取总体趋势数据（列式）", description = "Accept为列式JSON或application/cbor时返回")
+    @GetMapping(value = "/overall-trend", produces = {ColumnarSeriesDTO.COLUMNAR_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ColumnarSeriesDTO getOverallTrendColumnar(
+            @RequestParam Integer period,
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate
+    ) {
+        return ColumnarSeriesDTO.from(statisticsService.calculateOverallTrend(
+                period,
+                startDate,
+                endDate
+        ));
+    }
+
     /**
      * 获取指定商品ID从最早销售时间到今天的每天销售数量
      *
@@ -97,4 +157,15 @@ public class StatisticsController {
     public List<Map<String, Object>> getDailySales(@PathVariable int productId) {
         return statisticsService.getDailySalesByProductId(productId);
     }
+
+    /**
+     * 获取指定商品ID从最早销售时间到今天的每天销售数量（列式）
+     *
+     * @param productId 商品ID
+     * @return 起始日期 + 每日销量数组
+     */
+    @GetMapping(value = "/daily-sales/{productId}", produces = {ColumnarSeriesDTO.COLUMNAR_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ColumnarSeriesDTO getDailySalesColumnar(@PathVariable int productId) {
+        return statisticsService.getDailySalesSeries(productId);
+    }
 }
@@ -1,11 +1,38 @@
 package com.example.modules.dto.batch;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 批次列表DTO，由投影查询直接构造
+ */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class BatchDto {
     private Integer id;
+    private ProductDto product;
     private String batchNumber;
-    private String productName; // 可能需要的其他字段
-    // 添加其他必要的字段
-} 
\ No newline at end of file
+    private LocalDate productionDate;
+    private LocalDate expirationDate;
+    private BigDecimal costPrice;
+    private Boolean status;
+    private String remark;
+    private LocalDateTime createdTime;
+
+    /**
+     * 批次所属商品
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductDto {
+        private int id;
+        private String name;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.modules.dto.batch;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 临期批次报告DTO
+ * 列出截止日期前到期（含已过期）且仍有库存的批次，以及受影响的库存数量和成本
+ */
+@Data
+public class ExpiryReportDto {
+    /**
+     * 生成时间
+     */
+    private LocalDateTime generatedTime;
+
+    /**
+     * 统计截止日期（含）
+     */
+    private LocalDate endDate;
+
+    /**
+     * 临期库存总数量
+     */
+    private int totalQuantity;
+
+    /**
+     * 临期库存总成本
+     */
+    private BigDecimal totalCost = BigDecimal.ZERO;
+
+    /**
+     * 临期批次列表，按过期日期升序
+     */
+    private List<Item> items = new ArrayList<>();
+
+    /**
+     * 临期批次
+     */
+    @Data
+    public static class Item {
+        /**
+         * 批次ID
+         */
+        private Integer batchId;
+
+        /**
+         * 批次号
+         */
+        private String batchNumber;
+
+        /**
+         * 商品ID
+         */
+        private Integer productId;
+
+        /**
+         * 商品名称
+         */
+        private String productName;
+
+        /**
+         * 过期日期
+         */
+        private LocalDate expirationDate;
+
+        /**
+         * 剩余天数，已过期为负数
+         */
+        private long daysLeft;
+
+        /**
+         * 库存数量
+         */
+        private Integer quantity;
+
+        /**
+         * 批次成本单价
+         */
+        private BigDecimal costPrice;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.modules.dto.inventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 历史库存DTO
+ * 某一天结束时各商品、批次的库存数量
+ */
+@Data
+public class InventoryAsOfDto {
+    /**
+     * 查询日期（当天结束时的库存）
+     */
+    private LocalDate date;
+
+    /**
+     * 回放起点的快照时间
+     */
+    private LocalDateTime snapshotTime;
+
+    /**
+     * 查询日期是否在快照覆盖范围内（之前有快照，向后回放）；
+     * 为false时由之后最近的快照倒推，结果依赖区间内的库存变动记录完整，仅供参考
+     */
+    private boolean covered;
+
+    /**
+     * 回放的库存变动汇总行数
+     */
+    private int replayedRows;
+
+    /**
+     * 库存明细，数量为0的不返回
+     */
+    private List<Item> items = new ArrayList<>();
+
+    /**
+     * 库存明细
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        private Integer productId;
+        private String productName;
+        private Integer batchId; // 非批次商品为null
+        private String batchNumber;
+        private Integer quantity;
+    }
+}
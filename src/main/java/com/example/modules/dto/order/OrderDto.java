@@ -1,7 +1,9 @@
 package com.example.modules.dto.order;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
@@ -17,6 +19,7 @@ import java.util.List;
 @Getter
 @Setter
 @ToString
+@NoArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OrderDto implements Serializable {
     private int id;
@@ -26,12 +29,25 @@ public class OrderDto implements Serializable {
     private BigDecimal totalProfit;
     private List<OrderDetailDto> orderDetails = new ArrayList<>();
 
+    /**
+     * 投影查询使用的构造方法，订单明细另行查询后填充
+     */
+    public OrderDto(int id, ShopDto shop, LocalDateTime createTime, BigDecimal totalSalesAmount, BigDecimal totalProfit) {
+        this.id = id;
+        this.shop = shop;
+        this.createTime = createTime;
+        this.totalSalesAmount = totalSalesAmount;
+        this.totalProfit = totalProfit;
+    }
+
     /**
      * DTO for {@link com.example.modules.entity.Shop}
      */
     @Getter
     @Setter
     @ToString
+    @NoArgsConstructor
+    @AllArgsConstructor
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class ShopDto implements Serializable {
         private int id;
@@ -45,6 +61,8 @@ public class OrderDto implements Serializable {
     @Getter
     @Setter
     @ToString
+    @NoArgsConstructor
+    @AllArgsConstructor
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class OrderDetailDto implements Serializable {
         private Integer id;
@@ -63,6 +81,8 @@ public class OrderDto implements Serializable {
         @Getter
         @Setter
         @ToString
+        @NoArgsConstructor
+        @AllArgsConstructor
         @JsonIgnoreProperties(ignoreUnknown = true)
         public static class ProductDto implements Serializable {
             private int id;
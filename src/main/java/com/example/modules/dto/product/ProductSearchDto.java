@@ -0,0 +1,23 @@
+package com.example.modules.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品搜索结果DTO
+ * 下单界面输入联想使用
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSearchDto {
+    private Integer id;
+    private String name;
+    private Integer categoryId;
+    private String categoryName;
+    private BigDecimal defaultSalePrice;
+    private boolean batchManaged;
+}
@@ -0,0 +1,47 @@
+package com.example.modules.dto.receivable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 应收账款账龄DTO
+ * 收款按先进先出冲抵最早的欠款，未冲抵部分按欠款发生日期分段
+ */
+@Data
+public class ReceivableAgingDto {
+    private LocalDate date; // 统计日期
+    private BigDecimal total = BigDecimal.ZERO; // 欠款合计
+    private BigDecimal days0To30 = BigDecimal.ZERO;
+    private BigDecimal days31To60 = BigDecimal.ZERO;
+    private BigDecimal days61To90 = BigDecimal.ZERO;
+    private BigDecimal over90 = BigDecimal.ZERO;
+
+    /**
+     * 有欠款的商家，按欠款金额降序
+     */
+    private List<ShopAging> shops = new ArrayList<>();
+
+    /**
+     * 商家账龄
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ShopAging {
+        private Integer shopId;
+        private String name;
+        private String location;
+        private BigDecimal balance;
+        private BigDecimal days0To30;
+        private BigDecimal days31To60;
+        private BigDecimal days61To90;
+        private BigDecimal over90;
+        private LocalDate oldestDate; // 最早未结清欠款的日期
+    }
+}
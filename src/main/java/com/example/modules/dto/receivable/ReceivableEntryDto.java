@@ -0,0 +1,26 @@
+package com.example.modules.dto.receivable;
+
+import com.example.modules.entity.ReceivableType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for {@link com.example.modules.entity.ReceivableEntry}
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReceivableEntryDto {
+    private Integer id;
+    private Integer shopId;
+    private ReceivableType type;
+    private BigDecimal amount; // 增加欠款为正，减少欠款为负
+    private BigDecimal balance; // 记账后的欠款余额
+    private LocalDateTime entryTime;
+    private Integer orderId;
+    private String remark;
+}
@@ -0,0 +1,23 @@
+package com.example.modules.dto.receivable;
+
+import com.example.modules.entity.ReceivableType;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 应收账款记账请求
+ */
+@Data
+public class ReceivableRequestDto {
+    private Integer shopId;
+    private ReceivableType type;
+
+    /**
+     * 金额：销售欠款、收款为正数；调整为正表示增加欠款，为负表示减少欠款
+     */
+    private BigDecimal amount;
+
+    private Integer orderId; // 关联订单（可选）
+    private String remark;
+}
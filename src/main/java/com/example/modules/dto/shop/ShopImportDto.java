@@ -0,0 +1,31 @@
+package com.example.modules.dto.shop;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * 店铺导入行
+ * 字段按原始文本接收，校验和类型转换在导入服务中进行，以便逐行报告错误
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ShopImportDto {
+    @JsonAlias("名称")
+    private String name;
+
+    @JsonAlias("地址")
+    private String location;
+
+    /**
+     * 价格规则ID或名称
+     */
+    @JsonAlias({"priceRuleId", "价格规则"})
+    private String priceRule;
+
+    @JsonAlias("经度")
+    private String longitude;
+
+    @JsonAlias("纬度")
+    private String latitude;
+}
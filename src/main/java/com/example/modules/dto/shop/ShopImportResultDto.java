@@ -0,0 +1,47 @@
+package com.example.modules.dto.shop;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 店铺导入结果DTO
+ * 校验通过的行全部导入，未通过的行逐行列出原因
+ */
+@Data
+public class ShopImportResultDto {
+    /**
+     * 数据行数（不含CSV表头）
+     */
+    private int total;
+
+    /**
+     * 导入成功的行数
+     */
+    private int imported;
+
+    /**
+     * 新店铺ID，与导入成功的行顺序一致
+     */
+    private List<Integer> ids = new ArrayList<>();
+
+    /**
+     * 未导入的行
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 行错误
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private int row; // 行号，从1开始，不含CSV表头
+        private String name;
+        private String message;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.modules.dto.shop;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 附近店铺DTO
+ * 店铺位置信息及与查询点的距离
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShopNearbyDto {
+    private int id;
+    private String name;
+    private String location;
+    private BigDecimal longitude;
+    private BigDecimal latitude;
+    private double distance; // 与查询点的距离（米），范围查询时为0
+}
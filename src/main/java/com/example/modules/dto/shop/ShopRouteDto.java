@@ -0,0 +1,57 @@
+package com.example.modules.dto.shop;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 配送路线DTO
+ * 按访问顺序排列的店铺及每段距离
+ */
+@Data
+public class ShopRouteDto {
+    /**
+     * 路线总距离（米，直线距离）
+     */
+    private double totalDistance;
+
+    /**
+     * 最近邻构造路线的总距离（米），用于对比优化效果
+     */
+    private double initialDistance;
+
+    /**
+     * 计算耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 是否因超出时间预算提前结束优化
+     */
+    private boolean timedOut;
+
+    /**
+     * 按访问顺序排列的店铺
+     */
+    private List<Stop> stops = new ArrayList<>();
+
+    /**
+     * 路线中的店铺
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Stop {
+        private int sequence; // 访问顺序，从1开始
+        private Integer id;
+        private String name;
+        private String location;
+        private BigDecimal longitude;
+        private BigDecimal latitude;
+        private double distance; // 与上一站的距离（米）
+    }
+}
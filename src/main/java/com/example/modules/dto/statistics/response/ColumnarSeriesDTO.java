@@ -0,0 +1,97 @@
+package com.example.modules.dto.statistics.response;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列式时间序列 DTO
+ * 图表接口的紧凑表示：起始日期 + 步长描述日期轴，每条序列使用原始 double 数组，
+ * 空值通过位图标记，避免逐日的装箱对象和日期字符串
+ * 通过 Accept 头协商：{@link #COLUMNAR_JSON_VALUE} 或 application/cbor
+ */
+@Data
+public class ColumnarSeriesDTO {
+
+    /**
+     * 列式JSON的媒体类型
+     */
+    public static final String COLUMNAR_JSON_VALUE = "application/vnd.junlebao.columnar+json";
+
+    private LocalDate start; // 起始日期
+    private int stepDays = 1; // 相邻两个点之间的天数
+    private int length; // 点数
+    private List<Column> columns = new ArrayList<>();
+
+    /**
+     * 单条序列
+     */
+    @Data
+    public static class Column {
+        private String name;
+        /**
+         * 序列值，空值位置填0
+         */
+        private double[] values;
+        /**
+         * 空值位图，第i位（按字节低位在前）为1表示values[i]为空；没有空值时为null
+         */
+        private byte[] nullBitmap;
+    }
+
+    /**
+     * 由移动平均线DTO转换
+     * 移动平均线的日期是连续的，因此只保留起始日期
+     */
+    public static ColumnarSeriesDTO from(MovingAverageLineDTO lineDTO) {
+        List<Column> columns = new ArrayList<>();
+        for (MovingAverageLineDTO.MovingAverageInfoDTO infoDTO : lineDTO.getMovingAverageInfoDTOS()) {
+            columns.add(column(infoDTO.getName(), infoDTO.getData()));
+        }
+        List<LocalDate> dates = lineDTO.getDates();
+        return of(dates == null || dates.isEmpty() ? null : dates.getFirst(), dates == null ? 0 : dates.size(), columns);
+    }
+
+    public static ColumnarSeriesDTO of(LocalDate start, int length, List<Column> columns) {
+        ColumnarSeriesDTO dto = new ColumnarSeriesDTO();
+        dto.setStart(start);
+        dto.setLength(length);
+        dto.setColumns(columns);
+        return dto;
+    }
+
+    /**
+     * 由可能包含null的装箱数组构建序列
+     */
+    public static Column column(String name, Double[] data) {
+        double[] values = new double[data.length];
+        byte[] bitmap = null;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == null) {
+                if (bitmap == null) {
+                    bitmap = new byte[(data.length + 7) >>> 3];
+                }
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            } else {
+                values[i] = data[i];
+            }
+        }
+        Column column = new Column();
+        column.setName(name);
+        column.setValues(values);
+        column.setNullBitmap(bitmap);
+        return column;
+    }
+
+    /**
+     * 由不含空值的原始数组构建序列
+     */
+    public static Column column(String name, double[] data) {
+        Column column = new Column();
+        column.setName(name);
+        column.setValues(data);
+        return column;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.modules.dto.statistics.response;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品ABC分类 DTO
+ * 按最近N天的利润贡献分类：A类累计占总利润的前80%，B类占接下来的15%，其余为C类
+ */
+@Data
+public class ProductAbcDTO {
+    private int days; // 窗口天数
+    private BigDecimal totalProfit; // 窗口内总利润
+    private List<Group> groups = new ArrayList<>(); // A、B、C三组
+
+    /**
+     * 分类分组
+     */
+    @Data
+    public static class Group {
+        private String abcClass; // 分类
+        private int productCount; // 商品数量
+        private BigDecimal totalProfit; // 分组利润
+        private BigDecimal profitShare; // 占总利润比例
+        private List<Integer> productIds = new ArrayList<>(); // 按利润降序的商品ID
+    }
+}
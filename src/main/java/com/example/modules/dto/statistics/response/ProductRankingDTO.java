@@ -0,0 +1,33 @@
+package com.example.modules.dto.statistics.response;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品销售排行 DTO
+ * 最近N天窗口内按利润或销量排序的商品，附带ABC分类
+ */
+@Data
+public class ProductRankingDTO {
+    private int days; // 窗口天数
+    private String by; // 排序依据：PROFIT 利润 / QUANTITY 销量
+    private List<Item> items = new ArrayList<>(); // 排行
+
+    /**
+     * 排行项
+     */
+    @Data
+    public static class Item {
+        private int rank; // 名次
+        private int productId; // 商品ID
+        private String productName; // 商品名称
+        private int quantity; // 销售数量
+        private BigDecimal velocity; // 日均销量
+        private BigDecimal totalSales; // 总销售额
+        private BigDecimal totalProfit; // 总利润
+        private String abcClass; // 按利润的ABC分类
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 用于表示每个商家的统计结果。
@@ -17,4 +20,23 @@ public class ShopStatisticsDTO {
     private BigDecimal totalSales; // 总销售额
     private BigDecimal totalProfit; // 总利润
     private BigDecimal averageMonthlyProfit; // 平均月利润
+    private int orderCount; // 订单总数
+    private BigDecimal averageBasket; // 平均客单价
+    private LocalDate lastOrderDate; // 最近下单日期
+    private Long daysSinceLastOrder; // 距最近下单的天数，没有订单时为null
+    private List<WindowStatistics> windows = new ArrayList<>(); // 最近7、30、90天统计
+
+    /**
+     * 滚动窗口统计
+     */
+    @Getter
+    @Setter
+    public static class WindowStatistics {
+        private int days; // 窗口天数
+        private BigDecimal sales; // 销售额
+        private BigDecimal profit; // 利润
+        private int orderCount; // 订单数
+        private BigDecimal ordersPerWeek; // 每周下单次数
+        private BigDecimal averageBasket; // 平均客单价
+    }
 }
@@ -0,0 +1,35 @@
+package com.example.modules.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存快照
+ * 历史数据，商品和批次只保存ID，不建立关联
+ */
+@Entity
+@Table(name = "inventory_snapshot", schema = "mine")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "snapshot_time", nullable = false)
+    private LocalDateTime snapshotTime;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "batch_id")
+    private Integer batchId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+}
@@ -0,0 +1,39 @@
+package com.example.modules.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 库存变动日汇总
+ * 按商品、日期、操作类型汇总的库存变动，由库存流水写库时维护
+ */
+@Entity
+@Table(name = "inventory_transaction_daily", schema = "mine")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryTransactionDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false)
+    private OperationType operationType;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount;
+}
@@ -0,0 +1,47 @@
+package com.example.modules.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 应收账款流水
+ * 只追加不修改，balance为记账后的欠款余额
+ */
+@Entity
+@Table(name = "receivable_entry", schema = "mine")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivableEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "shop_id", nullable = false)
+    private Integer shopId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false)
+    private ReceivableType entryType;
+
+    // 增加欠款为正，减少欠款为负
+    @Column(name = "amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "balance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "entry_time", nullable = false)
+    private LocalDateTime entryTime;
+
+    @Column(name = "order_id")
+    private Integer orderId;
+
+    @Column(name = "remark")
+    private String remark;
+}
@@ -0,0 +1,11 @@
+package com.example.modules.entity;
+
+/**
+ * 应收账款流水类型
+ */
+public enum ReceivableType {
+
+    销售欠款,
+    收款,
+    调整
+}
@@ -0,0 +1,10 @@
+package com.example.modules.event;
+
+/**
+ * 领域事件
+ * 业务服务在事务中通过ApplicationEventPublisher发布，事务提交后由 {@link DomainEventBus} 投递给各个消费者；
+ * 事件是不可变的，可以在线程间共享
+ */
+public sealed interface DomainEvent
+        permits OrderCreatedEvent, OrderCancelledEvent, PurchaseCreatedEvent, PurchaseCancelledEvent, StockChangedEvent {
+}
@@ -0,0 +1,262 @@
+package com.example.modules.event;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 领域事件总线（进程内）
+ * 业务事务提交后把事件写入环形缓冲区，每个 {@link DomainEventConsumer} 由自己的线程按序号顺序读取，
+ * 慢消费者不会拖慢其他消费者，也不会拖慢业务线程；只有当最慢的消费者落后满一圈时发布方才等待（背压），
+ * 不丢事件。槽位在启动时一次性分配，发布只写入事件引用，不创建节点或包装对象
+ * <p>
+ * 启动时对声明了回放起点的消费者，先从数据库回放该时间到总线创建之间的事件，再投递实时事件。
+ * 截止时间附近提交的订单可能既在回放快照中、又有事件在缓冲区中：回放完成后在同一事务中
+ * 按快照过滤缓冲区中的订单事件（同 {@link RebuildEventBuffer#missed}），不会重复计入或扣除未计入的订单
+ * <p>
+ * 投递线程在Web服务器启动之前开始运行（{@link SmartLifecycle}，阶段早于Web服务器），
+ * 早于接收请求，也早于各消费者在ApplicationReadyEvent上的重建；关闭时在Web服务器之后停止
+ */
+@Component
+@Slf4j
+public class DomainEventBus implements SmartLifecycle {
+
+    /**
+     * 生命周期阶段，小于Web服务器的阶段：先启动、后停止
+     */
+    private static final int PHASE = 0;
+
+    /**
+     * 消费者没有新事件时的休眠时间，发布时会主动唤醒
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 缓冲区满时发布方的等待时间
+     */
+    private static final long BACKPRESSURE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Autowired
+    private List<DomainEventConsumer> consumers; // 全部消费者
+
+    @Autowired
+    private DomainEventReplayer replayer; // 从数据库回放事件
+
+    @Value("${events.ring-size:8192}")
+    private int ringSize; // 环形缓冲区槽位数，必须是2的幂
+
+    private DomainEvent[] ring;
+
+    private int mask;
+
+    private final AtomicLong published = new AtomicLong(-1); // 已发布的最大序号
+
+    private long claimed = -1; // 已占用的最大序号，只在发布锁内读写
+
+    private Worker[] workers;
+
+    private final LocalDateTime createTime = LocalDateTime.now(); // 回放截止时间
+
+    private volatile boolean running = true;
+
+    private volatile boolean started; // 投递线程是否已启动
+
+    /**
+     * 单个消费者的读取进度和投递线程
+     */
+    private final class Worker implements Runnable {
+        private final DomainEventConsumer consumer;
+        private final Thread thread;
+        private volatile long sequence = -1; // 已处理的最大序号
+
+        private Worker(DomainEventConsumer consumer, int index) {
+            this.consumer = consumer;
+            this.thread = new Thread(this, "domain-event-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            replay();
+            while (running || sequence < published.get()) {
+                long available = published.get();
+                if (available <= sequence) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                    continue;
+                }
+                for (long next = sequence + 1; next <= available; next++) {
+                    deliver(ring[(int) next & mask]);
+                    sequence = next;
+                }
+            }
+        }
+
+        private void replay() {
+            LocalDateTime from = consumer.replayFrom();
+            if (from == null) {
+                return;
+            }
+            try {
+                long count = replayer.replay(from, createTime, consumer::accepts, this::deliver, this::catchUp);
+                log.info("{}回放完成，{}个事件", consumer.getClass()
+                                                    .getSimpleName(), count);
+            } catch (RuntimeException e) {
+                log.error("{}回放失败，只接收实时事件", consumer.getClass()
+                                                          .getSimpleName(), e);
+            }
+            consumer.onReplayed();
+        }
+
+        /**
+         * 在回放事务中投递回放期间写入缓冲区的事件，跳过订单已包含在回放快照中的事件，直到没有新事件
+         *
+         * @param replayed 返回给定订单ID中已回放的ID，按回放快照查询
+         */
+        private void catchUp(Function<Collection<Integer>, Collection<Integer>> replayed) {
+            RebuildEventBuffer filter = new RebuildEventBuffer();
+            long available;
+            while ((available = published.get()) > sequence) {
+                List<DomainEvent> events = new ArrayList<>();
+                for (long next = sequence + 1; next <= available; next++) {
+                    DomainEvent event = ring[(int) next & mask];
+                    if (consumer.accepts(event.getClass())) {
+                        events.add(event);
+                    }
+                }
+                for (DomainEvent event : filter.missed(events, replayed)) {
+                    deliver(event);
+                }
+                sequence = available;
+            }
+        }
+
+        private void deliver(DomainEvent event) {
+            if (!consumer.accepts(event.getClass())) {
+                return;
+            }
+            try {
+                consumer.onEvent(event);
+            } catch (RuntimeException e) {
+                log.error("{}处理事件失败: {}", consumer.getClass()
+                                                     .getSimpleName(), event, e);
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalStateException("events.ring-size必须是2的幂: " + ringSize);
+        }
+        ring = new DomainEvent[ringSize];
+        mask = ringSize - 1;
+        workers = new Worker[consumers.size()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(consumers.get(i), i);
+        }
+    }
+
+    /**
+     * 启动投递线程，此前发布的事件保留在缓冲区中
+     */
+    @Override
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        log.info("领域事件总线启动，{}个消费者，缓冲区{}个槽位", workers.length, ring.length);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return started && running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * 接收业务服务发布的事件
+     * 在事务提交后执行；不在事务中发布时立即执行
+     *
+     * @param event 事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainEvent(DomainEvent event) {
+        publish(event);
+    }
+
+    /**
+     * 写入环形缓冲区并唤醒消费者
+     * 最慢的消费者落后满一圈时等待其读取，等待期间持有发布锁，其他发布方同样等待
+     *
+     * @param event 事件
+     */
+    public synchronized void publish(DomainEvent event) {
+        long next = claimed + 1;
+        long wrap = next - ring.length;
+        while (wrap > minSequence()) {
+            if (!running) {
+                log.warn("领域事件总线已关闭，丢弃事件: {}", event);
+                return;
+            }
+            LockSupport.parkNanos(BACKPRESSURE_NANOS);
+        }
+        ring[(int) next & mask] = event;
+        claimed = next;
+        published.set(next);
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    /**
+     * 关闭时等待消费者处理完缓冲区中的事件
+     */
+    @Override
+    public void stop() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+        for (Worker worker : workers) {
+            if (!worker.thread.isAlive()) {
+                continue;
+            }
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+                return;
+            }
+        }
+    }
+
+    private long minSequence() {
+        long min = Long.MAX_VALUE;
+        for (Worker worker : workers) {
+            min = Math.min(min, worker.sequence);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.modules.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 领域事件消费者
+ * 实现为Spring Bean即自动注册到 {@link DomainEventBus}；每个消费者有自己的投递线程，
+ * 同一消费者按发布顺序逐个收到事件，onEvent不需要考虑并发调用，但与查询方法之间仍需同步
+ */
+public interface DomainEventConsumer {
+
+    /**
+     * 是否接收该类型的事件，不接收的事件不投递、也不回放
+     */
+    default boolean accepts(Class<? extends DomainEvent> type) {
+        return true;
+    }
+
+    /**
+     * 启动时从数据库回放的起始时间，回放的事件在实时事件之前投递；null表示不回放
+     * 适用于不自行从数据库重建、完全由事件增量维护的派生数据
+     */
+    default LocalDateTime replayFrom() {
+        return null;
+    }
+
+    /**
+     * 回放完成，之后只收到实时事件
+     */
+    default void onReplayed() {
+    }
+
+    /**
+     * 处理事件，抛出的异常只记录日志，不影响后续事件
+     *
+     * @param event 事件
+     */
+    void onEvent(DomainEvent event);
+}
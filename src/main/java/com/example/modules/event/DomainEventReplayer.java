@@ -0,0 +1,196 @@
+package com.example.modules.event;
+
+import com.example.modules.BaseRepository;
+import com.example.modules.entity.PurchaseState;
+import com.example.modules.entity.QBatch;
+import com.example.modules.entity.QInventoryTransaction;
+import com.example.modules.entity.QOrder;
+import com.example.modules.entity.QOrderDetail;
+import com.example.modules.entity.QPurchase;
+import com.example.modules.entity.QPurchaseDetail;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 从数据库回放领域事件
+ * 按类型依次游标读取订单、采购单和库存变动记录，每个类型内按时间顺序产出事件；
+ * 已取消的订单和采购单已被删除，回放结果只包含创建事件，与当前数据库状态一致；
+ * 全部读取在同一可重复读快照中进行，回放完成后可在同一快照中查询哪些订单已回放
+ */
+@Component
+public class DomainEventReplayer {
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    /**
+     * 回放[from, until)之间的事件
+     *
+     * @param from    起始时间
+     * @param until   截止时间（不含）
+     * @param accepts 需要回放的事件类型
+     * @param sink    事件接收方
+     * @param catchUp 回放完成后在同一事务中调用，参数返回给定订单ID中已回放的ID
+     * @return 回放的事件数
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long replay(LocalDateTime from, LocalDateTime until, Predicate<Class<? extends DomainEvent>> accepts,
+                       Consumer<DomainEvent> sink, Consumer<Function<Collection<Integer>, Collection<Integer>>> catchUp) {
+        long count = 0;
+        if (accepts.test(OrderCreatedEvent.class)) {
+            count += replayOrders(from, until, sink);
+        }
+        if (accepts.test(PurchaseCreatedEvent.class)) {
+            count += replayPurchases(from, until, sink);
+        }
+        if (accepts.test(StockChangedEvent.class)) {
+            count += replayStock(from, until, sink);
+        }
+        boolean orders = accepts.test(OrderCreatedEvent.class);
+        catchUp.accept(orderIds -> orders ? replayedOrders(orderIds, from, until) : List.of());
+        return count;
+    }
+
+    /**
+     * 给定订单中在回放范围内、快照中存在的订单，即已回放的订单
+     */
+    private List<Integer> replayedOrders(Collection<Integer> orderIds, LocalDateTime from, LocalDateTime until) {
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        return queryFactory.select(qOrder.id)
+                           .from(qOrder)
+                           .where(qOrder.id.in(orderIds), qOrder.createTime.goe(from), qOrder.createTime.lt(until))
+                           .fetch();
+    }
+
+    private long replayOrders(LocalDateTime from, LocalDateTime until, Consumer<DomainEvent> sink) {
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        QOrderDetail qOrderDetail = QOrderDetail.orderDetail; // 查询订单详情的QueryDSL对象
+        long count = 0;
+        try (Stream<Tuple> stream = queryFactory.select(qOrder.id, qOrder.shop.id, qOrder.createTime,
+                                                        qOrder.totalSalesAmount, qOrder.totalProfit,
+                                                        qOrderDetail.product.id, qOrderDetail.product.name,
+                                                        qOrderDetail.quantity, qOrderDetail.totalSalesAmount,
+                                                        qOrderDetail.totalProfit)
+                                                .from(qOrder)
+                                                .leftJoin(qOrder.orderDetails, qOrderDetail)
+                                                .where(qOrder.createTime.goe(from), qOrder.createTime.lt(until))
+                                                .orderBy(qOrder.createTime.asc(), qOrder.id.asc())
+                                                .setHint(HibernateHints.HINT_FETCH_SIZE, BaseRepository.STREAM_FETCH_SIZE)
+                                                .stream()) {
+            Tuple head = null;
+            List<OrderLine> lines = new ArrayList<>();
+            for (Tuple row : (Iterable<Tuple>) stream::iterator) {
+                if (head != null && !head.get(qOrder.id)
+                                         .equals(row.get(qOrder.id))) {
+                    sink.accept(orderEvent(head, lines, qOrder));
+                    count++;
+                    lines = new ArrayList<>();
+                }
+                head = row;
+                if (row.get(qOrderDetail.product.id) != null) {
+                    lines.add(new OrderLine(row.get(qOrderDetail.product.id), row.get(qOrderDetail.product.name),
+                                            row.get(qOrderDetail.quantity),
+                                            zeroIfNull(row.get(qOrderDetail.totalSalesAmount)),
+                                            zeroIfNull(row.get(qOrderDetail.totalProfit))));
+                }
+            }
+            if (head != null) {
+                sink.accept(orderEvent(head, lines, qOrder));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private OrderCreatedEvent orderEvent(Tuple head, List<OrderLine> lines, QOrder qOrder) {
+        return new OrderCreatedEvent(head.get(qOrder.id), head.get(qOrder.shop.id), head.get(qOrder.createTime),
+                                     zeroIfNull(head.get(qOrder.totalSalesAmount)),
+                                     zeroIfNull(head.get(qOrder.totalProfit)), List.copyOf(lines));
+    }
+
+    private long replayPurchases(LocalDateTime from, LocalDateTime until, Consumer<DomainEvent> sink) {
+        QPurchase qPurchase = QPurchase.purchase; // 查询采购单的QueryDSL对象
+        QPurchaseDetail qPurchaseDetail = QPurchaseDetail.purchaseDetail; // 查询采购明细的QueryDSL对象
+        QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
+        long count = 0;
+        try (Stream<Tuple> stream = queryFactory.select(qPurchase.id, qPurchase.inTime, qPurchase.totalAmount,
+                                                        qPurchaseDetail.product.id, qBatch.id,
+                                                        qPurchaseDetail.quantity, qPurchaseDetail.totalAmount)
+                                                .from(qPurchase)
+                                                .leftJoin(qPurchase.purchaseDetails, qPurchaseDetail)
+                                                .leftJoin(qPurchaseDetail.batch, qBatch)
+                                                .where(qPurchase.state.eq(PurchaseState.已入库),
+                                                       qPurchase.inTime.goe(from), qPurchase.inTime.lt(until))
+                                                .orderBy(qPurchase.inTime.asc(), qPurchase.id.asc())
+                                                .setHint(HibernateHints.HINT_FETCH_SIZE, BaseRepository.STREAM_FETCH_SIZE)
+                                                .stream()) {
+            Tuple head = null;
+            List<PurchaseLine> lines = new ArrayList<>();
+            for (Tuple row : (Iterable<Tuple>) stream::iterator) {
+                if (head != null && !head.get(qPurchase.id)
+                                         .equals(row.get(qPurchase.id))) {
+                    sink.accept(purchaseEvent(head, lines, qPurchase));
+                    count++;
+                    lines = new ArrayList<>();
+                }
+                head = row;
+                if (row.get(qPurchaseDetail.product.id) != null) {
+                    lines.add(new PurchaseLine(row.get(qPurchaseDetail.product.id), row.get(qBatch.id),
+                                               row.get(qPurchaseDetail.quantity),
+                                               zeroIfNull(row.get(qPurchaseDetail.totalAmount))));
+                }
+            }
+            if (head != null) {
+                sink.accept(purchaseEvent(head, lines, qPurchase));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private PurchaseCreatedEvent purchaseEvent(Tuple head, List<PurchaseLine> lines, QPurchase qPurchase) {
+        return new PurchaseCreatedEvent(head.get(qPurchase.id), head.get(qPurchase.inTime),
+                                        zeroIfNull(head.get(qPurchase.totalAmount)), List.copyOf(lines));
+    }
+
+    private long replayStock(LocalDateTime from, LocalDateTime until, Consumer<DomainEvent> sink) {
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction; // 查询库存变动记录的QueryDSL对象
+        long count = 0;
+        try (Stream<Tuple> stream = queryFactory.select(qTransaction.product.id, qTransaction.batch.id,
+                                                        qTransaction.quantity, qTransaction.operationType,
+                                                        qTransaction.transactionTime)
+                                                .from(qTransaction)
+                                                .where(qTransaction.transactionTime.goe(from),
+                                                       qTransaction.transactionTime.lt(until))
+                                                .orderBy(qTransaction.id.asc())
+                                                .setHint(HibernateHints.HINT_FETCH_SIZE, BaseRepository.STREAM_FETCH_SIZE)
+                                                .stream()) {
+            for (Tuple row : (Iterable<Tuple>) stream::iterator) {
+                sink.accept(new StockChangedEvent(row.get(qTransaction.product.id), row.get(qTransaction.batch.id),
+                                                  row.get(qTransaction.quantity), row.get(qTransaction.operationType),
+                                                  row.get(qTransaction.transactionTime)));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
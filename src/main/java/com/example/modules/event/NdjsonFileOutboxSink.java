@@ -0,0 +1,54 @@
+package com.example.modules.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 本地文件投递
+ * 每天一个NDJSON文件（outbox-yyyy-MM-dd.ndjson），每行一条消息；整批写入并刷盘后才算投递成功，
+ * 下游按行增量读取，用消息id去重
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file", matchIfMissing = true)
+public class NdjsonFileOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ObjectMapper objectMapper; // JSON序列化
+
+    @Value("${outbox.file.dir:./data/outbox}")
+    private String dir; // 文件目录
+
+    @Override
+    public void send(List<OutboxMessage> messages) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(messages.size() * 256);
+        for (OutboxMessage message : messages) {
+            objectMapper.writeValue(buffer, message);
+            buffer.write('\n');
+        }
+        Path directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("outbox-" + LocalDate.now() + ".ndjson");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.modules.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 销售订单已取消（订单已删除，库存已回补）
+ *
+ * @param orderId    订单ID
+ * @param shopId     商家ID
+ * @param createTime 原订单的下单时间，派生数据按下单日期扣除
+ * @param sales      订单销售额
+ * @param profit     订单利润
+ * @param lines      订单明细
+ */
+public record OrderCancelledEvent(int orderId, int shopId, LocalDateTime createTime, BigDecimal sales, BigDecimal profit,
+                                  List<OrderLine> lines) implements DomainEvent {
+}
@@ -0,0 +1,19 @@
+package com.example.modules.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 销售订单已创建
+ *
+ * @param orderId    订单ID
+ * @param shopId     商家ID
+ * @param createTime 下单时间
+ * @param sales      订单销售额
+ * @param profit     订单利润
+ * @param lines      订单明细
+ */
+public record OrderCreatedEvent(int orderId, int shopId, LocalDateTime createTime, BigDecimal sales, BigDecimal profit,
+                                List<OrderLine> lines) implements DomainEvent {
+}
@@ -0,0 +1,15 @@
+package com.example.modules.event;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单事件中的订单明细
+ *
+ * @param productId   商品ID
+ * @param productName 商品名称
+ * @param quantity    数量
+ * @param sales       销售额
+ * @param profit      利润
+ */
+public record OrderLine(int productId, String productName, int quantity, BigDecimal sales, BigDecimal profit) {
+}
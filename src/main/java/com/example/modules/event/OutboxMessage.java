@@ -0,0 +1,20 @@
+package com.example.modules.event;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱中的一条消息
+ * 下游按aggregateType + aggregateId保证顺序，按id去重（至少一次投递，可能重复）
+ *
+ * @param id            消息ID，全局递增
+ * @param aggregateType 聚合类型：order、purchase，库存变动为batch（批次管理的商品）或product
+ * @param aggregateId   聚合ID
+ * @param eventType     事件类型，如OrderCreated
+ * @param createTime    写入时间
+ * @param payload       事件内容（JSON）
+ */
+public record OutboxMessage(long id, String aggregateType, int aggregateId, String eventType, LocalDateTime createTime,
+                            @JsonRawValue String payload) {
+}
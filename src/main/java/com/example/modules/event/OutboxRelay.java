@@ -0,0 +1,104 @@
+package com.example.modules.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 发件箱转发
+ * 定时按id顺序读取一批消息投递给 {@link OutboxSink}，成功后按id删除；积压时连续整批投递直到取空
+ * 投递失败时不删除，下次从同一位置重试，同一聚合的消息不会越过失败的消息（至少一次、聚合内有序）
+ * <p>
+ * 按id精确删除而不是按id范围：并发事务的id可能晚于更大的id提交，未提交的行会在之后的批次中投递
+ * <p>
+ * 多实例部署时每次转发先获取MySQL命名锁（GET_LOCK），同一时刻只有一个实例在转发，
+ * 否则两个实例会并发投递同一批消息，同一聚合的消息也可能乱序；未获取到锁的实例跳过本次转发
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final String SELECT_SQL = """
+            SELECT id, aggregate_type, aggregate_id, event_type, create_time, payload
+            FROM outbox_event
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    /**
+     * 转发使用的MySQL命名锁
+     */
+    private static final String LOCK_NAME = "outbox_relay";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板
+
+    @Autowired
+    private OutboxSink sink; // 投递目标
+
+    @Value("${outbox.relay.batch-size:1000}")
+    private int batchSize; // 每批投递的最大条数
+
+    /**
+     * 投递发件箱中的消息
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void relay() {
+        // 命名锁属于连接，获取、转发、释放都在同一个连接上执行
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            JdbcTemplate locked = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Integer acquired = locked.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+            if (acquired == null || acquired != 1) {
+                log.debug("其他实例正在转发发件箱");
+                return null;
+            }
+            try {
+                relay(locked);
+            } finally {
+                locked.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+            }
+            return null;
+        });
+    }
+
+    private void relay(JdbcTemplate locked) {
+        long total = 0;
+        while (true) {
+            List<OutboxMessage> messages = locked.query(SELECT_SQL, (rs, rowNum) -> new OutboxMessage(
+                    rs.getLong("id"), rs.getString("aggregate_type"), rs.getInt("aggregate_id"),
+                    rs.getString("event_type"), rs.getTimestamp("create_time")
+                                                  .toLocalDateTime(), rs.getString("payload")), batchSize);
+            if (messages.isEmpty()) {
+                break;
+            }
+            try {
+                sink.send(messages);
+            } catch (Exception e) {
+                log.warn("发件箱投递失败，{}条消息将重试: {}", messages.size(), e.getMessage());
+                break;
+            }
+            String placeholders = String.join(", ", Collections.nCopies(messages.size(), "?"));
+            locked.update("DELETE FROM outbox_event WHERE id IN (" + placeholders + ")",
+                          messages.stream()
+                                  .map(OutboxMessage::id)
+                                  .toArray());
+            total += messages.size();
+            if (messages.size() < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.debug("发件箱投递{}条消息", total);
+        }
+    }
+}
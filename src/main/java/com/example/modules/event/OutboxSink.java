@@ -0,0 +1,19 @@
+package com.example.modules.event;
+
+import java.util.List;
+
+/**
+ * 发件箱消息的投递目标
+ * 由outbox.sink选择一个实现；send返回即视为投递成功，消息随后从发件箱删除，
+ * 抛出异常时整批保留，下次按相同顺序重新投递
+ */
+public interface OutboxSink {
+
+    /**
+     * 投递一批消息，按id升序
+     *
+     * @param messages 消息
+     * @throws Exception 投递失败
+     */
+    void send(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,120 @@
+package com.example.modules.event;
+
+import com.example.modules.utils.JdbcBatch;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 发件箱写入
+ * 领域事件发布时（仍在业务事务中）序列化并暂存，事务提交前以一次JDBC批处理写入outbox_event，
+ * 与业务数据同时提交或回滚；不在事务中发布时立即写入
+ * <p>
+ * 聚合按业务上串行修改的单位划分：订单、采购单，以及库存行（批次管理的商品按批次，否则按商品）。
+ * 同一聚合的修改由业务行锁（订单行、采购单行、库存行）串行化，发件箱行在持锁期间写入，
+ * 因此同一聚合的消息id顺序与提交顺序一致；同一商品不同批次的库存变动之间不保证顺序
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO outbox_event (aggregate_type, aggregate_id, event_type, payload, create_time)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量写入
+
+    @Autowired
+    private ObjectMapper objectMapper; // 事件序列化
+
+    /**
+     * 待写入的发件箱行
+     */
+    private record Row(String aggregateType, int aggregateId, String eventType, String payload, LocalDateTime createTime) {
+    }
+
+    /**
+     * 接收领域事件，在发布方的事务中执行
+     *
+     * @param event 事件
+     */
+    @EventListener
+    public void onDomainEvent(DomainEvent event) {
+        Row row = toRow(event);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(row));
+            return;
+        }
+        pending().add(row);
+    }
+
+    /**
+     * 当前事务暂存的行，首次使用时注册提交前写入
+     */
+    @SuppressWarnings("unchecked")
+    private List<Row> pending() {
+        List<Row> rows = (List<Row>) TransactionSynchronizationManager.getResource(this);
+        if (rows != null) {
+            return rows;
+        }
+        List<Row> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                insert(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+            }
+        });
+        return created;
+    }
+
+    private void insert(List<Row> rows) {
+        JdbcBatch.update(jdbcTemplate, INSERT_SQL, rows, (ps, row) -> {
+            ps.setString(1, row.aggregateType());
+            ps.setInt(2, row.aggregateId());
+            ps.setString(3, row.eventType());
+            ps.setString(4, row.payload());
+            ps.setTimestamp(5, Timestamp.valueOf(row.createTime()));
+        });
+    }
+
+    private Row toRow(DomainEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("领域事件序列化失败: " + event, e);
+        }
+        String eventType = event.getClass()
+                                .getSimpleName()
+                                .replace("Event", "");
+        LocalDateTime now = LocalDateTime.now();
+        return switch (event) {
+            case OrderCreatedEvent created -> new Row("order", created.orderId(), eventType, payload, now);
+            case OrderCancelledEvent cancelled -> new Row("order", cancelled.orderId(), eventType, payload, now);
+            case PurchaseCreatedEvent created -> new Row("purchase", created.purchaseId(), eventType, payload, now);
+            case PurchaseCancelledEvent cancelled -> new Row("purchase", cancelled.purchaseId(), eventType, payload, now);
+            case StockChangedEvent changed -> changed.batchId() != null
+                    ? new Row("batch", changed.batchId(), eventType, payload, now)
+                    : new Row("product", changed.productId(), eventType, payload, now);
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.modules.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 采购订单已取消（采购单已删除，已入库的商品已出库）
+ *
+ * @param purchaseId 采购单ID
+ * @param inTime     原入库时间，未入库为null
+ * @param amount     采购总金额
+ * @param lines      采购明细
+ */
+public record PurchaseCancelledEvent(int purchaseId, LocalDateTime inTime, BigDecimal amount,
+                                     List<PurchaseLine> lines) implements DomainEvent {
+}
@@ -0,0 +1,17 @@
+package com.example.modules.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 采购订单已创建并入库
+ *
+ * @param purchaseId 采购单ID
+ * @param inTime     入库时间
+ * @param amount     采购总金额
+ * @param lines      采购明细
+ */
+public record PurchaseCreatedEvent(int purchaseId, LocalDateTime inTime, BigDecimal amount,
+                                   List<PurchaseLine> lines) implements DomainEvent {
+}
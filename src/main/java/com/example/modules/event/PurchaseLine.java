@@ -0,0 +1,14 @@
+package com.example.modules.event;
+
+import java.math.BigDecimal;
+
+/**
+ * 采购事件中的采购明细
+ *
+ * @param productId 商品ID
+ * @param batchId   批次ID，非批次商品为null
+ * @param quantity  数量
+ * @param amount    金额
+ */
+public record PurchaseLine(int productId, Integer batchId, int quantity, BigDecimal amount) {
+}
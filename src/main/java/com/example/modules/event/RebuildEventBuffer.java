@@ -0,0 +1,105 @@
+package com.example.modules.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 重建期间到达的订单事件
+ * 消费者在可重复读事务中从数据库重建派生数据，重建期间提交的订单可能在快照中，也可能不在：
+ * 重建开始后收到的事件先暂存，快照读取完成后按订单是否在快照中决定是否应用到重建结果，
+ * 既不会漏掉也不会重复计入
+ * <p>
+ * start、offer、drain、stop由消费者在自己的锁内调用；missed只由重建线程调用。
+ * 事件总线回放时也用missed过滤缓冲区中的事件，此时不需要start
+ */
+public class RebuildEventBuffer {
+
+    private List<DomainEvent> events; // 暂存的事件，null表示不在重建中
+
+    private final Set<Integer> appliedOrders = new HashSet<>(); // 快照之后创建、已应用到重建结果的订单
+
+    /**
+     * 开始暂存，须在重建事务第一次读取之前调用
+     */
+    public void start() {
+        events = new ArrayList<>();
+        appliedOrders.clear();
+    }
+
+    /**
+     * 重建中时暂存事件
+     *
+     * @param event 事件
+     * @return 是否已暂存；false表示不在重建中，由调用方直接应用
+     */
+    public boolean offer(DomainEvent event) {
+        if (events == null) {
+            return false;
+        }
+        events.add(event);
+        return true;
+    }
+
+    /**
+     * 取出目前暂存的事件，之后继续暂存
+     */
+    public List<DomainEvent> drain() {
+        List<DomainEvent> drained = events;
+        events = new ArrayList<>();
+        return drained;
+    }
+
+    /**
+     * 停止暂存
+     *
+     * @return 尚未取出的事件
+     */
+    public List<DomainEvent> stop() {
+        List<DomainEvent> remaining = events == null ? List.of() : events;
+        events = null;
+        return remaining;
+    }
+
+    /**
+     * 从取出的事件中选出快照未包含、需要应用到重建结果的事件
+     * 订单创建：订单不在快照中时应用；订单取消：订单在快照中，或其创建事件已应用时应用
+     *
+     * @param drained    取出的事件，按投递顺序
+     * @param inSnapshot 返回给定订单ID中在快照中可见的ID，须在重建事务中查询
+     * @return 需要应用的事件，保持投递顺序
+     */
+    public List<DomainEvent> missed(List<DomainEvent> drained, Function<Collection<Integer>, Collection<Integer>> inSnapshot) {
+        Set<Integer> orderIds = new HashSet<>();
+        for (DomainEvent event : drained) {
+            switch (event) {
+                case OrderCreatedEvent created -> orderIds.add(created.orderId());
+                case OrderCancelledEvent cancelled -> orderIds.add(cancelled.orderId());
+                default -> {
+                }
+            }
+        }
+        Set<Integer> visible = orderIds.isEmpty() ? Set.of() : new HashSet<>(inSnapshot.apply(orderIds));
+        List<DomainEvent> missed = new ArrayList<>();
+        for (DomainEvent event : drained) {
+            switch (event) {
+                case OrderCreatedEvent created -> {
+                    if (!visible.contains(created.orderId())) {
+                        appliedOrders.add(created.orderId());
+                        missed.add(event);
+                    }
+                }
+                case OrderCancelledEvent cancelled -> {
+                    if (visible.contains(cancelled.orderId()) || appliedOrders.contains(cancelled.orderId())) {
+                        missed.add(event);
+                    }
+                }
+                default -> missed.add(event);
+            }
+        }
+        return missed;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.modules.event;
+
+import com.example.modules.entity.OperationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存已变动
+ *
+ * @param productId     商品ID
+ * @param batchId       批次ID，非批次商品为null
+ * @param quantity      变动数量，入库为正，出库为负
+ * @param operationType 操作类型
+ * @param time          变动时间
+ */
+public record StockChangedEvent(int productId, Integer batchId, int quantity, OperationType operationType,
+                                LocalDateTime time) implements DomainEvent {
+}
@@ -0,0 +1,61 @@
+package com.example.modules.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Webhook投递
+ * 每批消息以NDJSON作为一个POST请求体发送到outbox.webhook.url，响应2xx视为成功；
+ * 测试时可指向本地的桩服务
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "webhook")
+public class WebhookOutboxSink implements OutboxSink {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private ObjectMapper objectMapper; // JSON序列化
+
+    @Value("${outbox.webhook.url}")
+    private String url; // 接收地址
+
+    @Value("${outbox.webhook.timeout-ms:5000}")
+    private int timeoutMs; // 连接和读取超时
+
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    void init() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public void send(List<OutboxMessage> messages) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(messages.size() * 256);
+        for (OutboxMessage message : messages) {
+            objectMapper.writeValue(body, message);
+            body.write('\n');
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(NDJSON);
+        // 非2xx响应抛出异常，整批保留重试
+        restTemplate.postForEntity(url, new HttpEntity<>(body.toByteArray(), headers), Void.class);
+    }
+}
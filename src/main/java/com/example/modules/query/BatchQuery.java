@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -21,6 +22,7 @@ public class BatchQuery implements BaseQuery {
      * 批次ID
      */
     private Integer id;
+    private List<Integer> ids; // 按ID列表查询
 
     /**
      * 商品ID
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Data
@@ -15,6 +16,7 @@ import java.util.Set;
 @AllArgsConstructor
 public class CategoryQuery implements BaseQuery {
     private Integer id;
+    private List<Integer> ids; // 按ID列表查询
     private String name;
     private Boolean isDel;
     private Set<Include> includes = new HashSet<>();
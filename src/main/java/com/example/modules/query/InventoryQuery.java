@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -27,6 +28,7 @@ public class InventoryQuery implements BaseQuery {
     private Integer batchId;
 
     private Integer Id;
+    private List<Integer> ids; // 按ID列表查询
 
 
     /**
@@ -7,6 +7,7 @@ import lombok.Getter;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Getter
@@ -14,6 +15,7 @@ import java.util.Set;
 public class ShopQuery implements BaseQuery {
     // 查询条件
     private Integer id;
+    private List<Integer> ids; // 按ID列表查询
     private String name;
 
     private Character pinyin;
@@ -37,12 +37,4 @@ public interface BatchRepository extends JpaRepository<Batch, Integer> {
     @Query("SELECT b FROM Batch b WHERE b.product.id = :productId AND b.expirationDate >= :date AND b.status = true")
     List<Batch> findValidBatches(@Param("productId") Integer productId, @Param("date") LocalDate date);
 
-    /**
-     * 根据批次号前缀统计符合条件的批次数量。
-     *
-     * @param prefix 批次号前缀
-     * @return 符合条件的批次数量
-     */
-    @Query("SELECT COUNT(b) FROM Batch b WHERE b.batchNumber LIKE CONCAT(:prefix, '%')")
-    int countByBatchNumberPrefix(@Param("prefix") String prefix);
 }
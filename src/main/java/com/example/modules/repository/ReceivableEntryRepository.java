@@ -0,0 +1,17 @@
+package com.example.modules.repository;
+
+import com.example.modules.entity.ReceivableEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * 应收账款流水Repository接口
+ */
+public interface ReceivableEntryRepository extends JpaRepository<ReceivableEntry, Integer> {
+
+    /**
+     * 按时间倒序分页查询商家的流水
+     */
+    Slice<ReceivableEntry> findByShopIdOrderByIdDesc(Integer shopId, Pageable pageable);
+}
@@ -0,0 +1,282 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.batch.ExpiryReportDto;
+import com.example.modules.entity.Batch;
+import com.example.modules.entity.Inventory;
+import com.example.modules.entity.Product;
+import com.example.modules.entity.QBatch;
+import com.example.modules.entity.QInventory;
+import com.example.modules.utils.TransactionHooks;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批次过期索引服务
+ * 在内存中按过期日期维护所有有库存的启用批次，
+ * "N天内到期的批次及库存"只需遍历结果范围，不再扫描batch表
+ * 索引在启动时和每天凌晨从数据库全量重建，库存和批次变动在事务提交后增量更新；
+ * 重建期间更新过的批次不一定在全量读取的结果中，替换后从主库重新读取一次
+ */
+@Service
+@Slf4j
+public class BatchExpiryService {
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Value("${batch.expiry.alert-days:30}")
+    private int alertDays; // 定时报告的临期天数
+
+    /**
+     * 过期日期 -> (批次ID -> 索引项)
+     */
+    private volatile ConcurrentSkipListMap<LocalDate, Map<Integer, Entry>> byDate = new ConcurrentSkipListMap<>();
+
+    /**
+     * 批次ID -> 索引项，用于增量更新时定位旧位置
+     */
+    private volatile Map<Integer, Entry> byBatch = new ConcurrentHashMap<>();
+
+    private volatile ExpiryReportDto lastReport; // 最近一次定时生成的报告
+
+    private Set<Integer> changedDuringRebuild; // 重建期间更新过的批次ID，受this锁保护；null表示不在重建
+
+    /**
+     * 索引项
+     */
+    public record Entry(Integer batchId, String batchNumber, Integer productId, String productName,
+                        LocalDate expirationDate, BigDecimal costPrice, Integer quantity) {
+    }
+
+    /**
+     * 从数据库全量重建索引
+     * 不在事务中执行：从主库读取，替换后重新读取的批次也能看到最新数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${batch.expiry.rebuild-cron:0 30 2 * * *}")
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        ConcurrentSkipListMap<LocalDate, Map<Integer, Entry>> newByDate = new ConcurrentSkipListMap<>();
+        Map<Integer, Entry> newByBatch = new ConcurrentHashMap<>();
+        try {
+            for (Entry entry : load(null)) {
+                newByDate.computeIfAbsent(entry.expirationDate(), date -> new ConcurrentHashMap<>())
+                         .put(entry.batchId(), entry);
+                newByBatch.put(entry.batchId(), entry);
+            }
+        } catch (RuntimeException e) {
+            // 重建失败时保留原索引，期间的变动已更新到原索引
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+        Set<Integer> changed;
+        synchronized (this) {
+            byDate = newByDate;
+            byBatch = newByBatch;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        if (!changed.isEmpty()) {
+            reload(changed);
+        }
+        log.info("批次过期索引重建完成，共{}个批次，重新读取{}个重建期间变动的批次", newByBatch.size(), changed.size());
+    }
+
+    /**
+     * 库存变动后更新索引
+     * 在当前事务提交后生效，事务回滚时索引不变
+     *
+     * @param inventory 变动后的库存记录
+     */
+    public void onInventoryChanged(Inventory inventory) {
+        Batch batch = inventory.getBatch();
+        if (batch == null) {
+            return;
+        }
+        Product product = inventory.getProduct();
+        Entry entry = new Entry(batch.getId(), batch.getBatchNumber(), product.getId(), product.getName(),
+                                batch.getExpirationDate(), batch.getCostPrice(), inventory.getQuantity());
+        boolean indexed = Boolean.TRUE.equals(batch.getStatus());
+        TransactionHooks.afterCommit(() -> apply(entry.batchId(), indexed ? entry : null));
+    }
+
+    /**
+     * 批次信息（状态、过期日期等）变动后，在事务提交后从数据库重新加载该批次
+     *
+     * @param batchId 批次ID
+     */
+    public void onBatchChanged(Integer batchId) {
+        onBatchesChanged(List.of(batchId));
+    }
+
+    /**
+     * 多个批次变动后，在事务提交后用一次查询重新加载
+     *
+     * @param batchIds 批次ID
+     */
+    public void onBatchesChanged(Collection<Integer> batchIds) {
+        if (batchIds.isEmpty()) {
+            return;
+        }
+        Set<Integer> changed = new HashSet<>(batchIds);
+        TransactionHooks.afterCommit(() -> reload(changed));
+    }
+
+    /**
+     * 查询N天内到期（含已过期）且仍有库存的批次
+     *
+     * @param days 天数
+     * @return 临期批次报告
+     */
+    public ExpiryReportDto findExpiring(int days) {
+        LocalDate today = LocalDate.now();
+        ExpiryReportDto report = new ExpiryReportDto();
+        report.setGeneratedTime(LocalDateTime.now());
+        report.setEndDate(today.plusDays(days));
+
+        int totalQuantity = 0;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        for (Map<Integer, Entry> bucket : byDate.headMap(report.getEndDate(), true)
+                                                .values()) {
+            for (Entry entry : bucket.values()) {
+                ExpiryReportDto.Item item = new ExpiryReportDto.Item();
+                item.setBatchId(entry.batchId());
+                item.setBatchNumber(entry.batchNumber());
+                item.setProductId(entry.productId());
+                item.setProductName(entry.productName());
+                item.setExpirationDate(entry.expirationDate());
+                item.setDaysLeft(ChronoUnit.DAYS.between(today, entry.expirationDate()));
+                item.setQuantity(entry.quantity());
+                item.setCostPrice(entry.costPrice());
+                report.getItems()
+                      .add(item);
+
+                totalQuantity += entry.quantity();
+                if (entry.costPrice() != null) {
+                    totalCost = totalCost.add(entry.costPrice()
+                                                   .multiply(BigDecimal.valueOf(entry.quantity())));
+                }
+            }
+        }
+        report.setTotalQuantity(totalQuantity);
+        report.setTotalCost(totalCost);
+        return report;
+    }
+
+    /**
+     * 定时生成临期报告
+     */
+    @Scheduled(cron = "${batch.expiry.report-cron:0 0 7 * * *}")
+    public void generateReport() {
+        ExpiryReportDto report = findExpiring(alertDays);
+        lastReport = report;
+        if (!report.getItems()
+                   .isEmpty()) {
+            log.warn("临期批次报告：{}天内到期{}个批次，库存{}，成本{}",
+                     alertDays, report.getItems().size(), report.getTotalQuantity(), report.getTotalCost());
+        }
+    }
+
+    /**
+     * 获取最近一次定时生成的临期报告，尚未生成时立即生成
+     */
+    public ExpiryReportDto getLastReport() {
+        if (lastReport == null) {
+            generateReport();
+        }
+        return lastReport;
+    }
+
+    /**
+     * 从数据库重新读取批次并更新索引
+     * 读取和更新在同一把锁内，同一批次的多次重新读取按顺序生效，不会用较早读到的数据覆盖较新的
+     */
+    private synchronized void reload(Collection<Integer> batchIds) {
+        Map<Integer, Entry> loaded = load(batchIds).stream()
+                                                   .collect(Collectors.toMap(Entry::batchId, Function.identity()));
+        for (Integer batchId : batchIds) {
+            apply(batchId, loaded.get(batchId));
+        }
+    }
+
+    /**
+     * 替换或移除某个批次的索引项
+     *
+     * @param batchId 批次ID
+     * @param entry   新的索引项，为null或不需要索引时移除
+     */
+    private synchronized void apply(Integer batchId, Entry entry) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(batchId);
+        }
+        Entry old = byBatch.remove(batchId);
+        if (old != null) {
+            Map<Integer, Entry> bucket = byDate.get(old.expirationDate());
+            if (bucket != null) {
+                bucket.remove(batchId);
+                if (bucket.isEmpty()) {
+                    byDate.remove(old.expirationDate());
+                }
+            }
+        }
+        if (entry == null || entry.expirationDate() == null || entry.quantity() == null || entry.quantity() <= 0) {
+            return;
+        }
+        byDate.computeIfAbsent(entry.expirationDate(), date -> new ConcurrentHashMap<>())
+              .put(batchId, entry);
+        byBatch.put(batchId, entry);
+    }
+
+    /**
+     * 查询有库存的启用批次
+     *
+     * @param batchIds 批次ID，为null时查询全部
+     */
+    private List<Entry> load(Collection<Integer> batchIds) {
+        QInventory qInventory = QInventory.inventory; // 查询库存的QueryDSL对象
+        QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
+
+        BooleanBuilder where = new BooleanBuilder();
+        where.and(qInventory.quantity.gt(0));
+        where.and(qBatch.status.isTrue());
+        where.and(qBatch.expirationDate.isNotNull());
+        if (batchIds != null) {
+            where.and(qBatch.id.in(batchIds));
+        }
+
+        return queryFactory.select(Projections.constructor(Entry.class,
+                                                           qBatch.id, qBatch.batchNumber,
+                                                           qInventory.product.id, qInventory.product.name,
+                                                           qBatch.expirationDate, qBatch.costPrice, qInventory.quantity))
+                           .from(qInventory)
+                           .join(qInventory.batch, qBatch)
+                           .where(where)
+                           .fetch();
+    }
+}
@@ -6,18 +6,25 @@ import com.example.modules.entity.*;
 import com.example.modules.query.BatchQuery;
 import com.example.modules.repository.BatchRepository;
 import com.example.modules.utils.BatchNumberGenerator;
+import com.example.modules.utils.JdbcBatch;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.example.modules.mapper.BatchMapper;
+import com.example.modules.dto.batch.BatchDto;
 import com.example.modules.dto.batch.BatchUpdateDto;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * 批次管理服务
@@ -38,6 +45,36 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
     @Autowired
     private BatchMapper batchMapper; // 批次映射器，用于对象转换
 
+    @Autowired
+    private BatchExpiryService batchExpiryService; // 批次过期索引
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量写入
+
+    /**
+     * 流式查询批次DTO
+     * 批次和商品字段直接投影，不创建托管实体；调用方需在事务内消费并关闭返回的Stream
+     *
+     * @param query 查询条件，其中的includes会被忽略
+     * @return 批次DTO流
+     */
+    public Stream<BatchDto> findDtoStream(BatchQuery query) {
+        QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
+        // 商品字段由投影路径关联，不需要fetch join
+        query.setIncludes(Set.of());
+        return findStream(query, Projections.constructor(
+                BatchDto.class,
+                qBatch.id,
+                Projections.constructor(BatchDto.ProductDto.class, qBatch.product.id, qBatch.product.name),
+                qBatch.batchNumber,
+                qBatch.productionDate,
+                qBatch.expirationDate,
+                qBatch.costPrice,
+                qBatch.status,
+                qBatch.remark,
+                qBatch.createdTime
+        ));
+    }
 
 
     @Override
@@ -60,6 +97,9 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
         if (query.getId() != null) {
             where.and(qBatch.id.eq(query.getId()));
         }
+        if (query.getIds() != null) {
+            where.and(qBatch.id.in(query.getIds()));
+        }
 
         if (query.getProductId() != null) {
             where.and(qBatch.product.id.eq(query.getProductId()));
@@ -105,6 +145,49 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
         return batchRepository.save(batch);
     }
 
+    /**
+     * 批量创建批次
+     * 一次预留全部批次号，通过JDBC批处理插入，插入后回填批次ID
+     *
+     * @param batches 待创建的批次，需设置商品、采购明细、生产日期、有效期和成本价
+     */
+    @Transactional
+    public void createBatches(List<Batch> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        List<String> batchNumbers = batchNumberGenerator.generateBatchNumbers(batches.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batches.size(); i++) {
+            Batch batch = batches.get(i);
+            batch.setBatchNumber(batchNumbers.get(i));
+            batch.setStatus(true);
+            batch.setCreatedTime(now);
+        }
+
+        List<Integer> ids = JdbcBatch.insert(jdbcTemplate, """
+                INSERT INTO batch (product_id, batch_number, production_date, expiration_date,
+                                   purchase_detail_id, cost_price, status, created_time)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """, batches, (ps, batch) -> {
+            ps.setInt(1, batch.getProduct()
+                              .getId());
+            ps.setString(2, batch.getBatchNumber());
+            ps.setObject(3, batch.getProductionDate());
+            ps.setObject(4, batch.getExpirationDate());
+            ps.setObject(5, batch.getPurchaseDetail() == null ? null : batch.getPurchaseDetail()
+                                                                             .getId());
+            ps.setBigDecimal(6, batch.getCostPrice());
+            ps.setBoolean(7, batch.getStatus());
+            ps.setObject(8, batch.getCreatedTime());
+        });
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i)
+                   .setId(ids.get(i));
+        }
+        batchExpiryService.onBatchesChanged(ids);
+    }
+
     /**
      * 根据批次号查询批次
      */
@@ -146,6 +229,7 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
             .orElseThrow(() -> new MyException("批次不存在: " + batchId));
         batch.setStatus(false);
         batchRepository.save(batch);
+        batchExpiryService.onBatchChanged(batchId);
     }
 
     /**
@@ -159,6 +243,7 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
             .orElseThrow(() -> new MyException("批次不存在: " + batchId));
         batch.setStatus(true);
         batchRepository.save(batch);
+        batchExpiryService.onBatchChanged(batchId);
     }
 
     /**
@@ -176,12 +261,15 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
 
     @Transactional
     public Batch saveBatch(Batch batch) {
-        return batchRepository.save(batch);
+        Batch saved = batchRepository.save(batch);
+        batchExpiryService.onBatchChanged(saved.getId());
+        return saved;
     }
 
     @Transactional
     public void deleteBatch(Integer batchId) {
         batchRepository.deleteById(batchId);
+        batchExpiryService.onBatchChanged(batchId);
     }
 
     /**
@@ -191,12 +279,14 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
      */
     @Transactional
     public void batchUpdate(List<BatchUpdateDto> batches) {
-        for (BatchUpdateDto batchUpdateDto : batches) {
-            Batch batch = batchRepository.findById(batchUpdateDto.getId())
-                    .orElseThrow(() -> new MyException("批次不存在: " + batchUpdateDto.getId()));
-
-            Batch update = batchMapper.partialUpdate(batchUpdateDto, batch);
-            batchRepository.save(update);
-        }
+        // 一次查询加载全部批次，修改在事务提交时批量写回
+        List<Batch> updated = updateAll(batches, BatchUpdateDto::getId,
+                                        ids -> BatchQuery.builder()
+                                                         .ids(ids)
+                                                         .build(),
+                                        Batch::getId, batchMapper::partialUpdate, "批次");
+        batchExpiryService.onBatchesChanged(updated.stream()
+                                                   .map(Batch::getId)
+                                                   .toList());
     }
 } 
\ No newline at end of file
@@ -49,16 +49,14 @@ public class CategoryService implements BaseRepository<Category, CategoryQuery>
     /**
      * 修改分类
      */
+    @Transactional
     public void update(List<CategoryRequestDto> categorys) {
-
-        for (CategoryRequestDto categoryRequestDto : categorys) {
-            Category category = categoryRepository.findById(categoryRequestDto.getId())
-                                                  .orElseThrow(() -> new MyException("Category not found"));
-
-            categoryMapper.partialUpdate(categoryRequestDto, category);
-            categoryRepository.save(category);
-        }
-
+        // 一次查询加载全部类别，修改在事务提交时批量写回
+        updateAll(categorys, CategoryRequestDto::getId,
+                  ids -> CategoryQuery.builder()
+                                      .ids(ids)
+                                      .build(),
+                  Category::getId, categoryMapper::partialUpdate, "类别");
     }
 
     @Override
@@ -79,6 +77,9 @@ public class CategoryService implements BaseRepository<Category, CategoryQuery>
         if (query.getId() != null) {
             where.and(qCategory.id.eq(query.getId()));
         }
+        if (query.getIds() != null) {
+            where.and(qCategory.id.in(query.getIds()));
+        }
 
         // 根据名称模糊查询
         if (query.getName() != null) {
@@ -102,13 +103,12 @@ public class CategoryService implements BaseRepository<Category, CategoryQuery>
      */
     @Transactional
     public void batchUpdate(List<CategoryUpdateDto> categories) {
-        for (CategoryUpdateDto categoryUpdateDto : categories) {
-            Category category = categoryRepository.findById(categoryUpdateDto.getId())
-                    .orElseThrow(() -> new MyException("类别不存在: " + categoryUpdateDto.getId()));
-
-            categoryMapper.partialUpdate(categoryUpdateDto, category);
-            categoryRepository.save(category);
-        }
+        // 一次查询加载全部类别，修改在事务提交时批量写回
+        updateAll(categories, CategoryUpdateDto::getId,
+                  ids -> CategoryQuery.builder()
+                                      .ids(ids)
+                                      .build(),
+                  Category::getId, categoryMapper::partialUpdate, "类别");
     }
     /**
      * 软删除品类
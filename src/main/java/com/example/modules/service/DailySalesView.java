@@ -0,0 +1,207 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.statistics.response.ProductSalesInfoDTO;
+import com.example.modules.dto.statistics.response.SalesStatisticsDTO;
+import com.example.modules.event.DomainEvent;
+import com.example.modules.event.DomainEventConsumer;
+import com.example.modules.event.OrderCancelledEvent;
+import com.example.modules.event.OrderCreatedEvent;
+import com.example.modules.event.OrderLine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * 每日销售统计（物化视图）
+ * 在内存中按天维护最近若干天的订单数、销售额、利润及各商品的销量，
+ * 完全由领域事件增量维护：启动时从数据库回放窗口内的订单，之后随订单创建、取消更新，
+ * 窗口内的日期统计不再扫描订单；回放完成之前或超出窗口的查询返回空，由调用方回退到数据库查询
+ */
+@Service
+@Slf4j
+public class DailySalesView implements DomainEventConsumer {
+
+    @Value("${events.views.daily-sales.days:90}")
+    private int days; // 保留的天数
+
+    private final TreeMap<LocalDate, Day> daysByDate = new TreeMap<>(); // 日期 -> 当天汇总，受this锁保护
+
+    private volatile boolean ready; // 回放是否完成
+
+    /**
+     * 单日汇总
+     */
+    private static final class Day {
+        private int orderCount;
+        private BigDecimal sales = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+        private final Map<Integer, ProductSalesInfoDTO> products = new HashMap<>();
+
+        private void add(BigDecimal orderSales, BigDecimal orderProfit, List<OrderLine> lines, int sign) {
+            orderCount += sign;
+            sales = sales.add(sign > 0 ? orderSales : orderSales.negate());
+            profit = profit.add(sign > 0 ? orderProfit : orderProfit.negate());
+            for (OrderLine line : lines) {
+                ProductSalesInfoDTO dto = products.computeIfAbsent(line.productId(), id -> {
+                    ProductSalesInfoDTO created = new ProductSalesInfoDTO();
+                    created.setProductId(id);
+                    created.setTotalSales(BigDecimal.ZERO);
+                    created.setTotalProfit(BigDecimal.ZERO);
+                    return created;
+                });
+                dto.setProductName(line.productName());
+                dto.setQuantity(dto.getQuantity() + sign * line.quantity());
+                dto.setTotalSales(dto.getTotalSales()
+                                     .add(sign > 0 ? line.sales() : line.sales()
+                                                                        .negate()));
+                dto.setTotalProfit(dto.getTotalProfit()
+                                      .add(sign > 0 ? line.profit() : line.profit()
+                                                                          .negate()));
+            }
+        }
+    }
+
+    @Override
+    public boolean accepts(Class<? extends DomainEvent> type) {
+        return type == OrderCreatedEvent.class || type == OrderCancelledEvent.class;
+    }
+
+    @Override
+    public LocalDateTime replayFrom() {
+        return firstDay().atStartOfDay();
+    }
+
+    @Override
+    public void onReplayed() {
+        ready = true;
+        synchronized (this) {
+            log.info("每日销售统计回放完成，共{}天有订单", daysByDate.size());
+        }
+    }
+
+    @Override
+    public synchronized void onEvent(DomainEvent event) {
+        switch (event) {
+            case OrderCreatedEvent created -> apply(created.createTime(), created.sales(), created.profit(), created.lines(), 1);
+            case OrderCancelledEvent cancelled -> apply(cancelled.createTime(), cancelled.sales(), cancelled.profit(),
+                                                        cancelled.lines(), -1);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 每天移除超出窗口的日期
+     */
+    @Scheduled(cron = "${events.views.daily-sales.prune-cron:0 0 1 * * *}")
+    public synchronized void prune() {
+        daysByDate.headMap(firstDay())
+                  .clear();
+    }
+
+    /**
+     * 查询每日销售统计
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 按日期升序排列的每日统计，没有订单的日期为空统计；回放未完成或超出窗口时为空
+     */
+    public synchronized Optional<Map<LocalDate, SalesStatisticsDTO>> getDaily(LocalDate startDate, LocalDate endDate) {
+        if (!covers(startDate)) {
+            return Optional.empty();
+        }
+        Map<LocalDate, SalesStatisticsDTO> result = new LinkedHashMap<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            Day day = daysByDate.get(date);
+            result.put(date, day == null ? toDto(List.of()) : toDto(List.of(day)));
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * 查询日期范围内的销售统计合计
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 统计合计；回放未完成或超出窗口时为空
+     */
+    public synchronized Optional<SalesStatisticsDTO> getTotal(LocalDate startDate, LocalDate endDate) {
+        if (!covers(startDate)) {
+            return Optional.empty();
+        }
+        if (endDate.isBefore(startDate)) {
+            return Optional.of(toDto(List.of()));
+        }
+        return Optional.of(toDto(daysByDate.subMap(startDate, true, endDate, true)
+                                           .values()));
+    }
+
+    private boolean covers(LocalDate startDate) {
+        return ready && !startDate.isBefore(firstDay());
+    }
+
+    private void apply(LocalDateTime createTime, BigDecimal sales, BigDecimal profit, List<OrderLine> lines, int sign) {
+        LocalDate date = createTime.toLocalDate();
+        if (date.isBefore(firstDay())) {
+            return;
+        }
+        daysByDate.computeIfAbsent(date, key -> new Day())
+                  .add(sales == null ? BigDecimal.ZERO : sales, profit == null ? BigDecimal.ZERO : profit, lines, sign);
+    }
+
+    private LocalDate firstDay() {
+        return LocalDate.now()
+                        .minusDays(days - 1);
+    }
+
+    /**
+     * 合并若干天的汇总，结果与按订单计算的统计一致：只包含有销量的商品
+     */
+    private static SalesStatisticsDTO toDto(Iterable<Day> days) {
+        int orderCount = 0;
+        BigDecimal sales = BigDecimal.ZERO;
+        BigDecimal profit = BigDecimal.ZERO;
+        Map<Integer, ProductSalesInfoDTO> products = new HashMap<>();
+        for (Day day : days) {
+            orderCount += day.orderCount;
+            sales = sales.add(day.sales);
+            profit = profit.add(day.profit);
+            for (ProductSalesInfoDTO product : day.products.values()) {
+                ProductSalesInfoDTO dto = products.computeIfAbsent(product.getProductId(), id -> {
+                    ProductSalesInfoDTO created = new ProductSalesInfoDTO();
+                    created.setProductId(id);
+                    created.setProductName(product.getProductName());
+                    created.setTotalSales(BigDecimal.ZERO);
+                    created.setTotalProfit(BigDecimal.ZERO);
+                    return created;
+                });
+                dto.setQuantity(dto.getQuantity() + product.getQuantity());
+                dto.setTotalSales(dto.getTotalSales()
+                                     .add(product.getTotalSales()));
+                dto.setTotalProfit(dto.getTotalProfit()
+                                      .add(product.getTotalProfit()));
+            }
+        }
+        SalesStatisticsDTO result = new SalesStatisticsDTO();
+        result.setOrderCount(orderCount);
+        result.setTotalSales(sales);
+        result.setTotalProfit(profit);
+        result.setTotalCost(sales.subtract(profit));
+        result.setProductSalesInfoDTOS(products.values()
+                                               .stream()
+                                               .filter(dto -> dto.getQuantity() > 0)
+                                               .toList());
+        return result;
+    }
+}
@@ -0,0 +1,597 @@
+package com.example.modules.service;
+
+import com.example.modules.entity.OperationType;
+import com.example.modules.entity.Order;
+import com.example.modules.utils.JdbcBatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存变动流水（异步写入）
+ * 库存变动在业务事务提交前追加到本地流水文件并刷盘，提交后放入有界内存队列，由后台线程按JDBC批量写入inventory_transactions表，
+ * 下单等业务路径上不再有逐条的同步INSERT；流水文件写入失败时业务事务随之失败，不会出现已提交但没有流水的库存变动
+ * <p>
+ * 业务事务在刷盘之后回滚时，向流水文件追加作废标记，写库时跳过；事务结束之前写库线程不会越过该记录。
+ * 刷盘之后、提交完成之前进程崩溃的记录无法确定事务结果，重启后按已提交写库
+ * <p>
+ * 流水文件是唯一可信来源：每条记录带递增序号，已写库的序号保存在inventory_ledger_checkpoint表中。
+ * 队列满、写库失败或进程崩溃时，未写库的记录都会按序号从流水文件中补写；
+ * 全部写库后清空流水文件。关闭时会把剩余记录全部写库
+ * <p>
+ * 写库时在同一事务中写入明细、累加inventory_transaction_daily日汇总并推进检查点，
+ * 检查点之前的序号不会再次写入，明细与汇总都恰好写入一次
+ */
+@Service
+@Slf4j
+public class InventoryLedgerService {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO inventory_transactions (product_id, batch_id, quantity, transaction_time, operation_type, order_id)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String DAILY_SQL = """
+            INSERT INTO inventory_transaction_daily (product_id, summary_date, operation_type, quantity, transaction_count)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), transaction_count = transaction_count + VALUES(transaction_count)
+            """;
+
+    /**
+     * 流水文件中作废标记的前缀，后接被作废记录的序号
+     */
+    private static final String VOID_PREFIX = "V,";
+
+    private static final String CHECKPOINT_INIT_SQL =
+            "INSERT IGNORE INTO inventory_ledger_checkpoint (journal_id, last_seq) VALUES (?, 0)";
+
+    private static final String CHECKPOINT_SQL = "SELECT last_seq FROM inventory_ledger_checkpoint WHERE journal_id = ?";
+
+    private static final String CHECKPOINT_UPDATE_SQL = "UPDATE inventory_ledger_checkpoint SET last_seq = ? WHERE journal_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量写入
+
+    @Autowired
+    private PlatformTransactionManager transactionManager; // 事务管理器，明细与日汇总在同一事务中写入
+
+    @Value("${inventory.ledger.dir:./data/ledger}")
+    private String ledgerDir; // 流水文件目录
+
+    @Value("${inventory.ledger.queue-capacity:10000}")
+    private int queueCapacity; // 内存队列容量
+
+    @Value("${inventory.ledger.batch-size:500}")
+    private int batchSize; // 每批写库的最大条数
+
+    @Value("${inventory.ledger.flush-interval-ms:1000}")
+    private long flushIntervalMs; // 队列为空时的等待间隔
+
+    private BlockingQueue<Entry> queue;
+    private FileChannel journal; // 流水文件
+    private Path journalPath;
+    private String journalId; // 流水文件标识，对应检查点表中的一行
+    private Path rejectedPath; // 因数据约束无法写库的记录
+
+    private final Object journalLock = new Object(); // 保证序号与文件的顺序一致
+    private long lastAppendedSeq; // 已追加到流水文件的最大序号，受journalLock保护
+    private final TreeSet<Long> inFlight = new TreeSet<>(); // 已写入流水文件、业务事务尚未结束的序号，受journalLock保护
+    private volatile long lastFlushedSeq; // 已写库的最大序号，只由写库线程修改
+
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+
+    /**
+     * 流水记录
+     */
+    public record Entry(long seq, int productId, Integer batchId, int quantity, OperationType operationType,
+                        Integer orderId, LocalDateTime transactionTime) {
+
+        private Entry withoutOrder() {
+            return new Entry(seq, productId, batchId, quantity, operationType, null, transactionTime);
+        }
+
+        private DailyKey dailyKey() {
+            return new DailyKey(productId, transactionTime.toLocalDate(), operationType);
+        }
+
+        private String toLine() {
+            return seq + "," + productId + "," + (batchId == null ? "" : batchId) + "," + quantity + ","
+                    + operationType.name() + "," + (orderId == null ? "" : orderId) + "," + transactionTime + "\n";
+        }
+
+        private static Entry parse(String line) {
+            String[] parts = line.split(",", -1);
+            return new Entry(Long.parseLong(parts[0]), Integer.parseInt(parts[1]),
+                             parts[2].isEmpty() ? null : Integer.valueOf(parts[2]), Integer.parseInt(parts[3]),
+                             OperationType.valueOf(parts[4]), parts[5].isEmpty() ? null : Integer.valueOf(parts[5]),
+                             LocalDateTime.parse(parts[6]));
+        }
+    }
+
+    /**
+     * 尚未分配序号的库存变动，订单ID在提交前读取
+     */
+    private record Change(int productId, Integer batchId, int quantity, OperationType operationType, Order order,
+                          LocalDateTime transactionTime) {
+
+        private Entry toEntry(long seq) {
+            return new Entry(seq, productId, batchId, quantity, operationType, order == null ? null : order.getId(),
+                             transactionTime);
+        }
+    }
+
+    /**
+     * 日汇总键
+     */
+    private record DailyKey(int productId, LocalDate summaryDate, OperationType operationType) {
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Path dir = Paths.get(ledgerDir);
+        Files.createDirectories(dir);
+        journalPath = dir.resolve("inventory-ledger.log");
+        rejectedPath = dir.resolve("inventory-ledger.rejected");
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        journalId = journalId(dir);
+
+        // 恢复序号：检查点之后的记录由写库线程从流水文件补写
+        lastFlushedSeq = loadCheckpoint();
+        // 作废的序号也不再分配，否则新记录会被旧的作废标记跳过
+        lastAppendedSeq = Math.max(lastFlushedSeq, lastJournalSeq());
+        if (lastAppendedSeq > lastFlushedSeq) {
+            log.warn("库存流水文件中有{}条记录未写库，将补写", lastAppendedSeq - lastFlushedSeq);
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                                   StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (endsWithPartialLine()) {
+            journal.write(ByteBuffer.wrap(new byte[]{'\n'}));
+            journal.force(false);
+        }
+
+        running = true;
+        writer = new Thread(this::runWriter, "inventory-ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 崩溃时可能留下不完整的最后一行，需补上换行，之后追加的记录从新的一行开始，不会与之拼接
+     */
+    private boolean endsWithPartialLine() throws IOException {
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    /**
+     * 记录一次库存变动
+     * 存在事务时在提交前写入流水文件，写入失败则事务回滚；事务回滚则作废
+     *
+     * @param productId     商品ID
+     * @param batchId       批次ID（可选）
+     * @param quantity      变动数量（正数表示入库，负数表示出库）
+     * @param operationType 操作类型
+     * @param order         关联订单（可选），提交前读取其ID
+     */
+    public void record(int productId, Integer batchId, int quantity, OperationType operationType, Order order) {
+        Change change = new Change(productId, batchId, quantity, operationType, order, LocalDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(append(List.of(change)), true);
+            return;
+        }
+        pending().add(change);
+    }
+
+    /**
+     * 当前事务暂存的库存变动，首次使用时注册提交前写入流水文件、结束后放行或作废
+     */
+    @SuppressWarnings("unchecked")
+    private List<Change> pending() {
+        List<Change> changes = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (changes != null) {
+            return changes;
+        }
+        List<Change> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private List<Entry> appended = List.of();
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                appended = append(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(InventoryLedgerService.this);
+                complete(appended, status == STATUS_COMMITTED);
+            }
+        });
+        return created;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        // 不中断写库线程：FileChannel被中断会直接关闭，等待其在下一次轮询后写完剩余记录
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        journal.close();
+    }
+
+    /**
+     * 分配序号并写入流水文件，刷盘后返回；写入的序号在事务结束前不会写库
+     */
+    private List<Entry> append(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return List.of();
+        }
+        List<Entry> entries = new ArrayList<>(changes.size());
+        try {
+            synchronized (journalLock) {
+                StringBuilder lines = new StringBuilder();
+                for (Change change : changes) {
+                    Entry entry = change.toEntry(++lastAppendedSeq);
+                    entries.add(entry);
+                    inFlight.add(entry.seq());
+                    lines.append(entry.toLine());
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString()
+                                                         .getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+            }
+            // 在锁外刷盘，并发提交的事务共享同一次刷盘
+            journal.force(false);
+        } catch (IOException e) {
+            // 可能已写入一部分，作废后序号不再分配
+            complete(entries, false);
+            throw new UncheckedIOException("写入库存流水文件失败", e);
+        }
+        return entries;
+    }
+
+    /**
+     * 事务结束：提交的记录放入写库队列，回滚的记录在流水文件中标记作废
+     */
+    private void complete(List<Entry> entries, boolean committed) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        synchronized (journalLock) {
+            if (!committed) {
+                StringBuilder lines = new StringBuilder();
+                entries.forEach(entry -> lines.append(VOID_PREFIX)
+                                              .append(entry.seq())
+                                              .append('\n'));
+                try {
+                    journal.write(ByteBuffer.wrap(lines.toString()
+                                                       .getBytes(StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    // 标记丢失时重启后会按已提交写库，与崩溃时的处理一致
+                    log.error("库存流水作废标记写入失败: {}", entries, e);
+                }
+            }
+            entries.forEach(entry -> inFlight.remove(entry.seq()));
+            if (committed) {
+                // 队列已满时只保留在流水文件中，由写库线程按序号补写
+                entries.forEach(queue::offer);
+            }
+        }
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty() || hasUnflushed()) {
+            try {
+                List<Entry> batch = new ArrayList<>(batchSize);
+                Entry first = running ? queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("库存流水写库失败，稍后从流水文件重试", e);
+                if (!running) {
+                    break;
+                }
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * 按序号连续写入，不越过事务尚未结束的记录
+     * 队列中的记录覆盖不了连续区间时（队列溢出、作废、之前写库失败、事务提交顺序与序号不同），从流水文件读取
+     */
+    private void flush(List<Entry> batch) throws IOException {
+        long from = lastFlushedSeq + 1;
+        long to = writableSeq();
+        TreeMap<Long, Entry> bySeq = new TreeMap<>();
+        for (Entry entry : batch) {
+            if (entry.seq() >= from && entry.seq() <= to) {
+                bySeq.put(entry.seq(), entry);
+            }
+        }
+        if (!bySeq.isEmpty() && bySeq.size() == bySeq.lastKey() - from + 1) {
+            // 批次恰好从检查点之后连续
+            write(new ArrayList<>(bySeq.values()), bySeq.lastKey());
+        } else if (to >= from) {
+            write(readJournal(from, to), to);
+        }
+        truncateIfFlushed();
+    }
+
+    /**
+     * 写入[lastFlushedSeq + 1, lastSeq]区间内的记录，区间内没有出现的序号为已作废
+     */
+    private void write(List<Entry> entries, long lastSeq) throws IOException {
+        if (entries.isEmpty()) {
+            lastFlushedSeq = lastSeq;
+            return;
+        }
+        List<Entry> rejected = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Entry> unwritten = lockUnwritten(entries);
+                JdbcBatch.update(jdbcTemplate, INSERT_SQL, unwritten, this::bind);
+                updateDaily(unwritten);
+                jdbcTemplate.update(CHECKPOINT_UPDATE_SQL, lastSeq, journalId);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // 批量失败时逐条写入，违反约束的记录（如关联批次已删除）转存到rejected文件，不阻塞后续记录
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Entry> written = new ArrayList<>();
+                for (Entry entry : lockUnwritten(entries)) {
+                    if (insert(entry) || entry.orderId() != null && insert(entry.withoutOrder())) {
+                        // 订单在写库前已取消删除时，与外键ON DELETE SET NULL一致，保留流水但不关联订单
+                        written.add(entry);
+                    } else {
+                        log.error("库存流水无法写库，已转存: {}", entry);
+                        rejected.add(entry);
+                    }
+                }
+                updateDaily(written);
+                jdbcTemplate.update(CHECKPOINT_UPDATE_SQL, lastSeq, journalId);
+            });
+        }
+        for (Entry entry : rejected) {
+            Files.writeString(rejectedPath, entry.toLine(), StandardCharsets.UTF_8,
+                              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        lastFlushedSeq = lastSeq;
+    }
+
+    /**
+     * 锁定检查点行，返回尚未写库的记录
+     * 上一次写库已提交、但进程在更新内存序号前崩溃时，重放的记录在这里被过滤
+     */
+    private List<Entry> lockUnwritten(List<Entry> entries) {
+        Long checkpoint = jdbcTemplate.queryForObject(CHECKPOINT_SQL + " FOR UPDATE", Long.class, journalId);
+        return entries.stream()
+                      .filter(entry -> entry.seq() > checkpoint)
+                      .toList();
+    }
+
+    /**
+     * 读取流水文件标识，首次启动时生成并保存在流水目录中，目录迁移到其他主机后标识不变
+     */
+    private static String journalId(Path dir) throws IOException {
+        Path idPath = dir.resolve("inventory-ledger.id");
+        if (!Files.exists(idPath)) {
+            Path temp = idPath.resolveSibling(idPath.getFileName() + ".tmp");
+            Files.writeString(temp, UUID.randomUUID()
+                                        .toString());
+            Files.move(temp, idPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return Files.readString(idPath)
+                    .trim();
+    }
+
+    /**
+     * 读取数据库中的检查点，流水文件首次使用时初始化为0
+     */
+    private long loadCheckpoint() {
+        jdbcTemplate.update(CHECKPOINT_INIT_SQL, journalId);
+        return jdbcTemplate.queryForObject(CHECKPOINT_SQL, Long.class, journalId);
+    }
+
+    /**
+     * 逐条写入，违反约束时返回false
+     */
+    private boolean insert(Entry entry) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, entry));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("库存流水违反约束: {}，{}", entry, e.getMostSpecificCause()
+                                                      .getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 把一批记录按(商品, 日期, 操作类型)合并后累加到日汇总表
+     */
+    private void updateDaily(List<Entry> entries) {
+        Map<DailyKey, int[]> totals = new LinkedHashMap<>(); // 键 -> [数量, 次数]
+        for (Entry entry : entries) {
+            int[] total = totals.computeIfAbsent(entry.dailyKey(), key -> new int[2]);
+            total[0] += entry.quantity();
+            total[1]++;
+        }
+        JdbcBatch.update(jdbcTemplate, DAILY_SQL, new ArrayList<>(totals.entrySet()), (ps, row) -> {
+            ps.setInt(1, row.getKey()
+                            .productId());
+            ps.setObject(2, row.getKey()
+                               .summaryDate());
+            ps.setString(3, row.getKey()
+                               .operationType()
+                               .name());
+            ps.setInt(4, row.getValue()[0]);
+            ps.setInt(5, row.getValue()[1]);
+        });
+    }
+
+    private void bind(PreparedStatement ps, Entry entry) throws SQLException {
+        ps.setInt(1, entry.productId());
+        if (entry.batchId() == null) {
+            ps.setNull(2, Types.INTEGER);
+        } else {
+            ps.setInt(2, entry.batchId());
+        }
+        ps.setInt(3, entry.quantity());
+        ps.setObject(4, entry.transactionTime());
+        ps.setString(5, entry.operationType()
+                             .name());
+        if (entry.orderId() == null) {
+            ps.setNull(6, Types.INTEGER);
+        } else {
+            ps.setInt(6, entry.orderId());
+        }
+    }
+
+    /**
+     * 全部记录已写库且没有未结束的事务时清空流水文件
+     */
+    private void truncateIfFlushed() throws IOException {
+        synchronized (journalLock) {
+            if (lastFlushedSeq == lastAppendedSeq && inFlight.isEmpty() && journal.size() > 0) {
+                journal.truncate(0);
+            }
+        }
+    }
+
+    private boolean hasUnflushed() {
+        return writableSeq() > lastFlushedSeq;
+    }
+
+    /**
+     * 可以写库的最大序号：第一个事务尚未结束的记录之前
+     */
+    private long writableSeq() {
+        synchronized (journalLock) {
+            return inFlight.isEmpty() ? lastAppendedSeq : inFlight.first() - 1;
+        }
+    }
+
+    /**
+     * 从流水文件读取序号在[from, to]之间、未作废的记录
+     */
+    private List<Entry> readJournal(long from, long to) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(journalPath)) {
+            return entries;
+        }
+        Set<Long> voided = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                if (line.startsWith(VOID_PREFIX)) {
+                    voided.add(Long.parseLong(line.substring(VOID_PREFIX.length())));
+                    continue;
+                }
+                try {
+                    entry = Entry.parse(line);
+                } catch (RuntimeException e) {
+                    // 崩溃时可能留下不完整的最后一行
+                    log.warn("跳过无法解析的库存流水: {}", line);
+                    continue;
+                }
+                if (entry.seq() >= from && entry.seq() <= to) {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.removeIf(entry -> voided.contains(entry.seq()));
+        return entries;
+    }
+
+    /**
+     * 流水文件中的最大序号，包括已作废的记录
+     */
+    private long lastJournalSeq() throws IOException {
+        long last = 0;
+        if (!Files.exists(journalPath)) {
+            return last;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String body = line.startsWith(VOID_PREFIX) ? line.substring(VOID_PREFIX.length()) : line;
+                int end = body.indexOf(',');
+                try {
+                    last = Math.max(last, Long.parseLong(end < 0 ? body : body.substring(0, end)));
+                } catch (NumberFormatException e) {
+                    log.warn("跳过无法解析的库存流水: {}", line);
+                }
+            }
+        }
+        return last;
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(flushIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+    }
+}
@@ -5,20 +5,33 @@ import com.example.modules.BaseRepository;
 import com.example.modules.dto.inventory.InventoryUpdateDto;
 import com.example.modules.dto.product.ProductStockDTO;
 import com.example.modules.entity.*;
+import com.example.modules.event.StockChangedEvent;
 import com.example.modules.mapper.InventoryMapper;
 import com.example.modules.query.InventoryQuery;
 import com.example.modules.repository.InventoryRepository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -31,6 +44,11 @@ import java.util.Set;
 @Service
 public class InventoryService implements BaseRepository<Inventory, InventoryQuery> {
 
+    /**
+     * 批量入库时单条多行INSERT语句包含的最大行数
+     */
+    private static final int UPSERT_CHUNK_SIZE = 500;
+
     @Autowired
     private InventoryRepository inventoryRepository; // 库存仓库，用于与数据库交互
 
@@ -41,6 +59,24 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
     @Autowired
     private InventoryMapper inventoryMapper; // 库存映射器，用于对象转换
 
+    @Autowired
+    private BatchExpiryService batchExpiryService; // 批次过期索引
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量写入
+
+    @Autowired
+    private InventoryTransactionService inventoryTransactionService; // 库存变动记录服务
+
+    @Autowired
+    private InventoryLedgerService inventoryLedgerService; // 库存变动流水
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 领域事件发布，事务提交后投递给派生数据
+
+    @PersistenceContext
+    private EntityManager entityManager; // 实体管理器，用于出库时锁定库存记录
+
 
     /**
      * 构建基础查询
@@ -76,6 +112,9 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
         if (query.getId() != null) {
             where.and(qInventory.id.eq(query.getId()));
         }
+        if (query.getIds() != null) {
+            where.and(qInventory.id.in(query.getIds()));
+        }
         if (query.getProductId() != null) {
             where.and(qInventory.product.id.eq(query.getProductId()));
         }
@@ -91,16 +130,14 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
 
     @Transactional
     public void batchUpdate(List<InventoryUpdateDto> inventories) {
-        for (InventoryUpdateDto inventoryUpdateDto : inventories) {
-            Inventory inventory = this.findOne(InventoryQuery.builder()
-                    .Id(inventoryUpdateDto.getId())
-                    .includes(Set.of(InventoryQuery.Include.PRODUCT, InventoryQuery.Include.BATCH))
-                    .build())
-                    .orElseThrow(() -> new MyException("库存记录不存在: " + inventoryUpdateDto.getId()));
-
-            Inventory update = inventoryMapper.partialUpdate(inventoryUpdateDto, inventory);
-            inventoryRepository.save(update);
-        }
+        // 一次查询加载全部库存记录，修改在事务提交时批量写回
+        updateAll(inventories, InventoryUpdateDto::getId,
+                  ids -> InventoryQuery.builder()
+                                       .ids(ids)
+                                       .includes(Set.of(InventoryQuery.Include.PRODUCT, InventoryQuery.Include.BATCH))
+                                       .build(),
+                  Inventory::getId, inventoryMapper::partialUpdate, "库存记录")
+                .forEach(batchExpiryService::onInventoryChanged);
     }
 
     /**
@@ -109,18 +146,22 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      * @param product  商品对象
      * @param batch    批次对象
      * @param quantity 入库数量
+     * @param operationType 操作类型
+     * @param order    关联订单（可选）
      */
     @Transactional
-    public void stockIn(Product product, Batch batch, Integer quantity) {
+    public void stockIn(Product product, Batch batch, Integer quantity, OperationType operationType, Order order) {
         // 2. 查找或创建库存记录
         Inventory inventory = findOrCreateInventory(product, batch);
 
         // 3. 更新库存
         inventory.setQuantity(inventory.getQuantity() + quantity);
         inventoryRepository.save(inventory);
+        batchExpiryService.onInventoryChanged(inventory);
 
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, batch, quantity, OperationType.采购入库);
+        // 4. 记录库存变动
+        inventoryTransactionService.recordTransaction(product, batch, quantity, operationType, order);
+        publishStockChanged(product, batch, quantity, operationType);
     }
 
     /**
@@ -128,9 +169,11 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      *
      * @param product  商品对象
      * @param quantity 入库数量
+     * @param operationType 操作类型
+     * @param order    关联订单（可选）
      */
     @Transactional
-    public void stockIn(Product product, Integer quantity) {
+    public void stockIn(Product product, Integer quantity, OperationType operationType, Order order) {
         // 2. 查找或创建库存记录
         Inventory inventory = findOrCreateInventory(product, null);
 
@@ -138,8 +181,59 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
         inventory.setQuantity(inventory.getQuantity() + quantity);
         inventoryRepository.save(inventory);
 
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, null, quantity, OperationType.采购入库);
+        // 4. 记录库存变动
+        inventoryTransactionService.recordTransaction(product, null, quantity, operationType, order);
+        publishStockChanged(product, null, quantity, operationType);
+    }
+
+    /**
+     * 批量入库
+     * 按(商品, 批次)合并数量后，用多行 INSERT ... ON DUPLICATE KEY UPDATE 写入，
+     * 不再逐条查找或创建库存记录；依赖inventory表(product_id, batch_key)唯一索引
+     * 直接写库，不经过持久化上下文，调用前不应在同一事务中加载过相关库存实体
+     * 数量在数据库中原子累加，与并发出库互不覆盖
+     *
+     * @param items         入库明细
+     * @param operationType 操作类型，用于记录库存变动
+     */
+    @Transactional
+    public void bulkStockIn(List<StockInItem> items, OperationType operationType) {
+        Map<List<Integer>, Integer> merged = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StockInItem item : items) {
+            merged.merge(Arrays.asList(item.getProductId(), item.getBatchId()), item.getQuantity(), Integer::sum);
+            inventoryLedgerService.record(item.getProductId(), item.getBatchId(), item.getQuantity(), operationType, null);
+            eventPublisher.publishEvent(new StockChangedEvent(item.getProductId(), item.getBatchId(), item.getQuantity(),
+                                                              operationType, now));
+        }
+        List<Map.Entry<List<Integer>, Integer>> rows = new ArrayList<>(merged.entrySet());
+        // 按(商品, 批次)排序，并发批量入库时按相同顺序加锁，避免死锁
+        rows.sort(Comparator.comparing((Map.Entry<List<Integer>, Integer> row) -> row.getKey()
+                                                                              .get(0))
+                            .thenComparing(row -> row.getKey()
+                                                     .get(1), Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        for (int from = 0; from < rows.size(); from += UPSERT_CHUNK_SIZE) {
+            List<Map.Entry<List<Integer>, Integer>> chunk = rows.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, rows.size()));
+            String sql = "INSERT INTO inventory (product_id, batch_id, quantity) VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?)"))
+                    + " ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+            Object[] args = new Object[chunk.size() * 3];
+            int i = 0;
+            for (Map.Entry<List<Integer>, Integer> row : chunk) {
+                args[i++] = row.getKey()
+                               .get(0);
+                args[i++] = row.getKey()
+                               .get(1);
+                args[i++] = row.getValue();
+            }
+            jdbcTemplate.update(sql, args);
+        }
+        batchExpiryService.onBatchesChanged(items.stream()
+                                                 .map(StockInItem::getBatchId)
+                                                 .filter(Objects::nonNull)
+                                                 .distinct()
+                                                 .toList());
     }
 
     /**
@@ -148,9 +242,11 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      * @param product  商品对象
      * @param batch    批次对象
      * @param quantity 出库数量
+     * @param operationType 操作类型
+     * @param order    关联订单（可选）
      */
     @Transactional
-    public void stockOut(Product product, Batch batch, Integer quantity) {
+    public void stockOut(Product product, Batch batch, Integer quantity, OperationType operationType, Order order) {
         // 2. 查找并检查库存
         Inventory inventory = findInventoryOrThrow(product, batch);
         if (inventory.getQuantity() < quantity) {
@@ -160,9 +256,11 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
         // 3. 更新库存
         inventory.setQuantity(inventory.getQuantity() - quantity);
         inventoryRepository.save(inventory);
+        batchExpiryService.onInventoryChanged(inventory);
 
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, batch, -quantity, OperationType.销售出库);
+        // 4. 记录库存变动
+        inventoryTransactionService.recordTransaction(product, batch, -quantity, operationType, order);
+        publishStockChanged(product, batch, -quantity, operationType);
     }
 
     /**
@@ -170,9 +268,11 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      *
      * @param product  商品对象
      * @param quantity 出库数量
+     * @param operationType 操作类型
+     * @param order    关联订单（可选）
      */
     @Transactional
-    public void stockOut(Product product, Integer quantity) {
+    public void stockOut(Product product, Integer quantity, OperationType operationType, Order order) {
         // 2. 查找并检查库存
         Inventory inventory = findInventoryOrThrow(product, null);
         if (inventory.getQuantity() < quantity) {
@@ -182,8 +282,9 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
         inventory.setQuantity(inventory.getQuantity() - quantity);
         inventoryRepository.save(inventory);
 
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, null, -quantity, OperationType.销售出库);
+        // 4. 记录库存变动
+        inventoryTransactionService.recordTransaction(product, null, -quantity, operationType, order);
+        publishStockChanged(product, null, -quantity, operationType);
     }
 
 
@@ -267,15 +368,18 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
 
     /**
      * 查找库存记录或抛出异常
+     * 记录加行锁并重新读取数量，避免与并发的出库、取消订单回补库存互相覆盖
      *
      * @param product 商品对象
      * @param batch   批次对象
      * @return 库存记录
      */
     private Inventory findInventoryOrThrow(Product product, Batch batch) {
-        return batch != null ? inventoryRepository.findByProductIdAndBatchId(product.getId(), batch.getId())
-                                                  .orElseThrow(() -> new MyException(String.format("找不到库存记录: 商品[%s], 批次[%s]", product.getName(), batch.getBatchNumber()))) : inventoryRepository.findByProductIdAndBatchIdIsNull(product.getId())
-                                                                                                                                                                                                           .orElseThrow(() -> new MyException(String.format("找不到库存记录: 商品[%s]", product.getName())));
+        Inventory inventory = batch != null ? inventoryRepository.findByProductIdAndBatchId(product.getId(), batch.getId())
+                                                                 .orElseThrow(() -> new MyException(String.format("找不到库存记录: 商品[%s], 批次[%s]", product.getName(), batch.getBatchNumber()))) : inventoryRepository.findByProductIdAndBatchIdIsNull(product.getId())
+                                                                                                                                                                                                                          .orElseThrow(() -> new MyException(String.format("找不到库存记录: 商品[%s]", product.getName())));
+        entityManager.refresh(inventory, LockModeType.PESSIMISTIC_WRITE);
+        return inventory;
     }
 
     /**
@@ -321,6 +425,25 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
         return allocations;
     }
 
+    /**
+     * 发布库存变动事件，事务提交后投递
+     */
+    private void publishStockChanged(Product product, Batch batch, int quantity, OperationType operationType) {
+        eventPublisher.publishEvent(new StockChangedEvent(product.getId(), batch == null ? null : batch.getId(), quantity,
+                                                          operationType, LocalDateTime.now()));
+    }
+
+    /**
+     * 批量入库明细
+     */
+    @Data
+    @AllArgsConstructor
+    public static class StockInItem {
+        private Integer productId;
+        private Integer batchId; // 非批次商品为null
+        private Integer quantity;
+    }
+
     /**
      * 批次分配结果类
      */
@@ -0,0 +1,194 @@
+package com.example.modules.service;
+
+import com.example.exception.MyException;
+import com.example.modules.dto.inventory.InventoryAsOfDto;
+import com.example.modules.entity.QBatch;
+import com.example.modules.entity.QInventorySnapshot;
+import com.example.modules.entity.QInventoryTransaction;
+import com.example.modules.entity.QProduct;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 库存快照服务
+ * 定期保存库存快照；历史库存从最近的快照开始，只回放快照与查询时间之间的库存变动，
+ * 查询代价与区间内的变动量相关，而不是全部历史
+ */
+@Service
+@Slf4j
+public class InventorySnapshotService {
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于整表快照
+
+    @Value("${inventory.snapshot.retention-days:400}")
+    private int retentionDays; // 快照保留天数
+
+    /**
+     * 生成库存快照，并清理过期快照
+     * 快照只保存数量不为0的库存记录
+     */
+    @Scheduled(cron = "${inventory.snapshot.cron:0 5 0 * * *}")
+    @Transactional
+    public void takeSnapshot() {
+        LocalDateTime snapshotTime = LocalDateTime.now();
+        int rows = jdbcTemplate.update("""
+                                               INSERT INTO inventory_snapshot (snapshot_time, product_id, batch_id, quantity)
+                                               SELECT ?, product_id, batch_id, quantity
+                                               FROM inventory
+                                               WHERE quantity <> 0
+                                               """, snapshotTime);
+        int pruned = jdbcTemplate.update("DELETE FROM inventory_snapshot WHERE snapshot_time < ?",
+                                         snapshotTime.minusDays(retentionDays));
+        log.info("库存快照完成，保存{}条，清理过期快照{}条", rows, pruned);
+    }
+
+    /**
+     * 查询某一天结束时的库存
+     * 优先使用查询时间之前最近的快照向后回放；没有更早的快照时使用之后最近的快照向前倒推，结果标记为不在覆盖范围内；
+     * 还没有任何快照时拒绝查询：库存变动记录不一定从初始库存开始完整记录，从头回放的结果不可信
+     *
+     * @param date      日期
+     * @param productId 商品ID（可选）
+     * @return 历史库存
+     */
+    @Transactional(readOnly = true)
+    public InventoryAsOfDto getInventoryAsOf(LocalDate date, Integer productId) {
+        QInventorySnapshot qSnapshot = QInventorySnapshot.inventorySnapshot; // 查询库存快照的QueryDSL对象
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction; // 查询库存变动记录的QueryDSL对象
+        QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
+
+        LocalDateTime end = date.plusDays(1)
+                                .atStartOfDay();
+
+        // 1. 选择回放起点：快照包含其时间之前的所有变动
+        LocalDateTime snapshotTime = queryFactory.select(qSnapshot.snapshotTime.max())
+                                                 .from(qSnapshot)
+                                                 .where(qSnapshot.snapshotTime.loe(end))
+                                                 .fetchOne();
+        boolean forward = snapshotTime != null;
+        if (!forward) {
+            snapshotTime = queryFactory.select(qSnapshot.snapshotTime.min())
+                                       .from(qSnapshot)
+                                       .where(qSnapshot.snapshotTime.gt(end))
+                                       .fetchOne();
+        }
+        if (snapshotTime == null) {
+            throw new MyException("尚未生成库存快照，无法查询历史库存");
+        }
+
+        // 2. 读取快照
+        Map<List<Integer>, Integer> quantities = new LinkedHashMap<>(); // (商品ID, 批次ID) -> 数量
+        BooleanBuilder snapshotWhere = new BooleanBuilder(qSnapshot.snapshotTime.eq(snapshotTime));
+        if (productId != null) {
+            snapshotWhere.and(qSnapshot.productId.eq(productId));
+        }
+        for (Tuple row : queryFactory.select(qSnapshot.productId, qSnapshot.batchId, qSnapshot.quantity)
+                                     .from(qSnapshot)
+                                     .where(snapshotWhere)
+                                     .fetch()) {
+            quantities.merge(Arrays.asList(row.get(qSnapshot.productId), row.get(qSnapshot.batchId)),
+                             row.get(qSnapshot.quantity), Integer::sum);
+        }
+
+        // 3. 按商品、批次汇总区间内的库存变动，向后回放为加，向前倒推为减
+        BooleanBuilder where = new BooleanBuilder();
+        if (forward) {
+            where.and(qTransaction.transactionTime.goe(snapshotTime))
+                 .and(qTransaction.transactionTime.lt(end));
+        } else {
+            where.and(qTransaction.transactionTime.goe(end))
+                 .and(qTransaction.transactionTime.lt(snapshotTime));
+        }
+        if (productId != null) {
+            where.and(qTransaction.product.id.eq(productId));
+        }
+        List<Tuple> deltas = queryFactory.select(qTransaction.product.id, qBatch.id, qTransaction.quantity.sum())
+                                         .from(qTransaction)
+                                         .leftJoin(qTransaction.batch, qBatch)
+                                         .where(where)
+                                         .groupBy(qTransaction.product.id, qBatch.id)
+                                         .fetch();
+        int sign = forward ? 1 : -1;
+        for (Tuple row : deltas) {
+            // Hibernate对整数求和返回Long
+            Number delta = row.get(2, Number.class);
+            quantities.merge(Arrays.asList(row.get(qTransaction.product.id), row.get(qBatch.id)),
+                             delta == null ? 0 : sign * delta.intValue(), Integer::sum);
+        }
+
+        // 4. 组装结果
+        InventoryAsOfDto dto = new InventoryAsOfDto();
+        dto.setDate(date);
+        dto.setSnapshotTime(snapshotTime);
+        dto.setCovered(forward);
+        dto.setReplayedRows(deltas.size());
+
+        quantities.values()
+                  .removeIf(quantity -> quantity == 0);
+        Map<Integer, String> productNames = findProductNames(quantities.keySet()
+                                                                       .stream()
+                                                                       .map(List::getFirst)
+                                                                       .collect(Collectors.toSet()));
+        Map<Integer, String> batchNumbers = findBatchNumbers(quantities.keySet()
+                                                                       .stream()
+                                                                       .map(key -> key.get(1))
+                                                                       .filter(batchId -> batchId != null)
+                                                                       .collect(Collectors.toSet()));
+        quantities.forEach((key, quantity) -> dto.getItems()
+                                                 .add(new InventoryAsOfDto.Item(key.get(0), productNames.get(key.get(0)),
+                                                                                key.get(1), batchNumbers.get(key.get(1)), quantity)));
+        dto.getItems()
+           .sort(Comparator.comparing(InventoryAsOfDto.Item::getProductId)
+                           .thenComparing(InventoryAsOfDto.Item::getBatchId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return dto;
+    }
+
+    private Map<Integer, String> findProductNames(Set<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        QProduct qProduct = QProduct.product; // 查询产品的QueryDSL对象
+        return queryFactory.select(qProduct.id, qProduct.name)
+                           .from(qProduct)
+                           .where(qProduct.id.in(productIds))
+                           .fetch()
+                           .stream()
+                           .collect(Collectors.toMap(row -> row.get(qProduct.id), row -> row.get(qProduct.name)));
+    }
+
+    private Map<Integer, String> findBatchNumbers(Set<Integer> batchIds) {
+        if (batchIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
+        return queryFactory.select(qBatch.id, qBatch.batchNumber)
+                           .from(qBatch)
+                           .where(qBatch.id.in(batchIds))
+                           .fetch()
+                           .stream()
+                           .collect(Collectors.toMap(row -> row.get(qBatch.id), row -> row.get(qBatch.batchNumber)));
+    }
+}
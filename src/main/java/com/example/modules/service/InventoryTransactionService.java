@@ -5,16 +5,19 @@ import com.example.modules.entity.*;
 import com.example.modules.query.InventoryTransactionQuery;
 import com.example.modules.repository.InventoryTransactionRepository;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 库存变动记录服务
@@ -29,6 +32,9 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
     @Autowired
     private JPAQueryFactory queryFactory; // JPA查询工厂
 
+    @Autowired
+    private InventoryLedgerService inventoryLedgerService; // 库存变动流水，异步批量写库
+
 
     @Override
     public JPAQuery<InventoryTransaction> buildBaseQuery(InventoryTransactionQuery query) {
@@ -88,6 +94,7 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
 
     /**
      * 记录库存变动
+     * 通过流水异步批量写库，在当前事务提交后生效
      *
      * @param product       商品
      * @param batch         批次（可选）
@@ -95,23 +102,14 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
      * @param operationType 操作类型
      * @param order         关联订单（可选）
      */
-    @Transactional
     public void recordTransaction(Product product, Batch batch, Integer quantity,
                                   OperationType operationType, Order order) {
-        InventoryTransaction transaction = new InventoryTransaction();
-        transaction.setProduct(product);
-        transaction.setBatch(batch);
-        transaction.setQuantity(quantity);
-        transaction.setOperationType(operationType);
-        transaction.setOrder(order);
-        transaction.setTransactionTime(LocalDateTime.now());
-        transactionRepository.save(transaction);
+        inventoryLedgerService.record(product.getId(), batch == null ? null : batch.getId(), quantity, operationType, order);
     }
 
     /**
      * 记录库存变动（不关联订单）
      */
-    @Transactional
     public void recordTransaction(Product product, Batch batch, Integer quantity,
                                   OperationType operationType) {
         recordTransaction(product, batch, quantity, operationType, null);
@@ -147,21 +145,73 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
 
     /**
      * 获取商品在指定时间段内的库存变动汇总
+     * 时间段内的整天从日汇总表读取，首尾不足一天的部分在明细表上按操作类型分组汇总
      *
      * @param productId 商品ID
      * @param startTime 开始时间
      * @param endTime   结束时间
      * @return 按操作类型汇总的数量
      */
+    @Transactional(readOnly = true)
     public Map<OperationType, Integer> getTransactionSummary(Integer productId,
                                                              LocalDateTime startTime,
                                                              LocalDateTime endTime) {
-        List<InventoryTransaction> transactions = getTransactionHistory(productId, startTime, endTime);
-        return transactions.stream()
-                           .collect(Collectors.groupingBy(
-                                   InventoryTransaction::getOperationType,
-                                   Collectors.summingInt(InventoryTransaction::getQuantity)
-                           ));
+        Map<OperationType, Integer> summary = new EnumMap<>(OperationType.class);
+        if (startTime.isAfter(endTime)) {
+            return summary;
+        }
+
+        // 整天范围：[firstDay, lastDay)
+        LocalDate firstDay = startTime.toLocalDate();
+        if (!startTime.toLocalTime()
+                      .equals(LocalTime.MIDNIGHT)) {
+            firstDay = firstDay.plusDays(1);
+        }
+        LocalDate lastDay = endTime.toLocalDate();
+        if (!firstDay.isBefore(lastDay)) {
+            sumTransactions(summary, productId, startTime, endTime, true);
+            return summary;
+        }
+
+        QInventoryTransactionDaily qDaily = QInventoryTransactionDaily.inventoryTransactionDaily; // 查询日汇总的QueryDSL对象
+        for (Tuple row : queryFactory.select(qDaily.operationType, qDaily.quantity.sum())
+                                     .from(qDaily)
+                                     .where(qDaily.productId.eq(productId),
+                                            qDaily.summaryDate.goe(firstDay),
+                                            qDaily.summaryDate.lt(lastDay))
+                                     .groupBy(qDaily.operationType)
+                                     .fetch()) {
+            // Hibernate对整数求和返回Long
+            summary.merge(row.get(qDaily.operationType), row.get(1, Number.class)
+                                                            .intValue(), Integer::sum);
+        }
+        sumTransactions(summary, productId, startTime, firstDay.atStartOfDay(), false);
+        sumTransactions(summary, productId, lastDay.atStartOfDay(), endTime, true);
+        return summary;
+    }
+
+    /**
+     * 在明细表上按操作类型汇总，结果累加到summary
+     *
+     * @param endInclusive 是否包含结束时间
+     */
+    private void sumTransactions(Map<OperationType, Integer> summary, Integer productId,
+                                 LocalDateTime startTime, LocalDateTime endTime, boolean endInclusive) {
+        if (startTime.isAfter(endTime) || (!endInclusive && startTime.equals(endTime))) {
+            return;
+        }
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction; // 查询库存变动记录的QueryDSL对象
+        for (Tuple row : queryFactory.select(qTransaction.operationType, qTransaction.quantity.sum())
+                                     .from(qTransaction)
+                                     .where(qTransaction.product.id.eq(productId),
+                                            qTransaction.transactionTime.goe(startTime),
+                                            endInclusive ? qTransaction.transactionTime.loe(endTime)
+                                                         : qTransaction.transactionTime.lt(endTime))
+                                     .groupBy(qTransaction.operationType)
+                                     .fetch()) {
+            summary.merge(row.get(qTransaction.operationType), row.get(1, Number.class)
+                                                                 .intValue(), Integer::sum);
+        }
     }
 
     /**
@@ -3,20 +3,37 @@ package com.example.modules.service;
 import com.example.exception.MyException;
 import com.example.modules.BaseRepository;
 import com.example.modules.dto.order.OrderCreateRequest;
+import com.example.modules.dto.order.OrderDto;
 import com.example.modules.entity.*;
+import com.example.modules.event.OrderCancelledEvent;
+import com.example.modules.event.OrderCreatedEvent;
+import com.example.modules.event.OrderLine;
 import com.example.modules.query.BatchQuery;
 import com.example.modules.query.OrderQuery;
 import com.example.modules.query.ProductQuery;
 import com.example.modules.query.ShopQuery;
 import com.example.modules.repository.OrderRepository;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.LockModeType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 订单管理服务
@@ -36,14 +53,14 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
     @Autowired
     private ProductService productService; // 产品服务
 
-    @Autowired
-    private SaleBatchDetailService saleBatchDetailService; // 销售批次详情服务
-
     @Autowired
     private JPAQueryFactory queryFactory; // JPA查询工厂
     @Autowired
     private ShopService shopService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 领域事件发布，事务提交后投递给派生数据
+
 
     /**
      * 构建基础查询对象
@@ -162,7 +179,7 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
                             itemRequest.getPrice()
                         );
                         // 扣减库存
-                        inventoryService.stockOut(product, allocation.getBatch(), allocation.getQuantity());
+                        inventoryService.stockOut(product, allocation.getBatch(), allocation.getQuantity(), OperationType.销售出库, order);
                     }
                 } else {
                     // 如果指定了批次信息，按指定批次处理
@@ -174,54 +191,155 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
                                                   .orElseThrow(() -> new MyException("批次不存在: " + batchDetail.getBatchNumber()));
 
                         orderDetail.addBatchDetail(batch, batchDetail.getQuantity(), itemRequest.getPrice());
-                        inventoryService.stockOut(product, batch, batchDetail.getQuantity());
+                        inventoryService.stockOut(product, batch, batchDetail.getQuantity(), OperationType.销售出库, order);
                     }
                 }
             } else {
                 // 非批次商品直接扣减库存
-                inventoryService.stockOut(product, itemRequest.getQuantity());
+                inventoryService.stockOut(product, itemRequest.getQuantity(), OperationType.销售出库, order);
             }
         }
 
         // 保存订单
         orderRepository.save(order);
+        List<OrderLine> lines = order.getOrderDetails()
+                                     .stream()
+                                     .map(detail -> new OrderLine(detail.getProduct()
+                                                                        .getId(), detail.getProduct()
+                                                                                        .getName(),
+                                                                  detail.getQuantity(), detail.getTotalSalesAmount(),
+                                                                  detail.getTotalProfit()))
+                                     .toList();
+        eventPublisher.publishEvent(new OrderCreatedEvent(order.getId(), shop.getId(), order.getCreateTime(),
+                                                          order.getTotalSalesAmount(), order.getTotalProfit(), lines));
     }
 
     /**
      * 取消销售订单
+     * 语句数固定，与明细和批次数量无关：锁定订单、一次查询加载明细及批次明细、
+     * 按(商品, 批次)合并后批量回补库存、批量删除批次明细、明细和订单
+     * 订单行加锁，同一订单的并发取消串行执行，后到的请求会发现订单已不存在；
+     * 库存在数据库中原子累加，不会覆盖并发出库的扣减
      */
     @Transactional
     public void cancelOrder(Integer orderId) {
-        // 1. 查找订单
-        Order order = orderRepository.findById(orderId)
-                                     .orElseThrow(() -> new MyException("订单不存在: " + orderId));
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        QOrderDetail qOrderDetail = QOrderDetail.orderDetail; // 查询订单详情的QueryDSL对象
+        QSaleBatchDetail qSaleBatchDetail = QSaleBatchDetail.saleBatchDetail; // 查询销售批次详情的QueryDSL对象
 
-        // 2. 处理每个商品的入库
-        for (OrderDetail orderDetail : order.getOrderDetails()) {
-            Product product = orderDetail.getProduct();
+        // 1. 锁定订单
+        Order order = queryFactory.selectFrom(qOrder)
+                                  .where(qOrder.id.eq(orderId))
+                                  .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                                  .fetchOne();
+        if (order == null) {
+            throw new MyException("订单不存在: " + orderId);
+        }
 
-            if (product.isBatchManaged()) {
-                // 对于批次商品，需要处理每个批次的入库
-                List<SaleBatchDetail> batchDetails = saleBatchDetailService.findByOrderDetail(orderDetail.getId());
-                for (SaleBatchDetail batchDetail : batchDetails) {
-                    // 批次入库
-                    inventoryService.stockIn(
-                            product,
-                            batchDetail.getBatch(),
-                            batchDetail.getQuantity()
-                    );
+        // 2. 一次查询加载明细及批次明细
+        List<Tuple> rows = queryFactory.select(qOrderDetail.id, qOrderDetail.product.id, qOrderDetail.product.name,
+                                               qOrderDetail.product.isBatchManaged, qOrderDetail.quantity,
+                                               qOrderDetail.totalSalesAmount, qOrderDetail.totalProfit,
+                                               qSaleBatchDetail.batch.id, qSaleBatchDetail.quantity)
+                                       .from(qOrderDetail)
+                                       .leftJoin(qOrderDetail.batchDetails, qSaleBatchDetail)
+                                       .where(qOrderDetail.order.id.eq(orderId))
+                                       .fetch();
+
+        // 3. 回补库存：批次商品按批次明细入库，非批次商品按明细数量入库
+        List<InventoryService.StockInItem> items = new ArrayList<>();
+        List<OrderLine> lines = new ArrayList<>();
+        Set<Integer> detailIds = new HashSet<>();
+        for (Tuple row : rows) {
+            Integer productId = row.get(qOrderDetail.product.id);
+            boolean firstRow = detailIds.add(row.get(qOrderDetail.id));
+            if (firstRow) {
+                BigDecimal salesAmount = row.get(qOrderDetail.totalSalesAmount);
+                BigDecimal profit = row.get(qOrderDetail.totalProfit);
+                lines.add(new OrderLine(productId, row.get(qOrderDetail.product.name), row.get(qOrderDetail.quantity),
+                                        salesAmount == null ? BigDecimal.ZERO : salesAmount,
+                                        profit == null ? BigDecimal.ZERO : profit));
+            }
+            if (Boolean.TRUE.equals(row.get(qOrderDetail.product.isBatchManaged))) {
+                Integer batchId = row.get(qSaleBatchDetail.batch.id);
+                if (batchId != null) {
+                    items.add(new InventoryService.StockInItem(productId, batchId, row.get(qSaleBatchDetail.quantity)));
                 }
-            } else {
-                // 对于非批次商品，直接入库
-                inventoryService.stockIn(
-                        product,
-                        orderDetail.getQuantity()
-                );
+            } else if (firstRow) {
+                items.add(new InventoryService.StockInItem(productId, null, row.get(qOrderDetail.quantity)));
             }
         }
+        inventoryService.bulkStockIn(items, OperationType.取消销售订单);
+
+        // 4. 删除订单（库存变动记录中的订单关联由外键置空）
+        if (!detailIds.isEmpty()) {
+            queryFactory.delete(qSaleBatchDetail)
+                        .where(qSaleBatchDetail.orderDetail.id.in(detailIds))
+                        .execute();
+            queryFactory.delete(qOrderDetail)
+                        .where(qOrderDetail.order.id.eq(orderId))
+                        .execute();
+        }
+        queryFactory.delete(qOrder)
+                    .where(qOrder.id.eq(orderId))
+                    .execute();
+        eventPublisher.publishEvent(new OrderCancelledEvent(orderId, order.getShop()
+                                                                  .getId(), order.getCreateTime(),
+                                                            order.getTotalSalesAmount(), order.getTotalProfit(), lines));
+    }
+
+    /**
+     * 分页查询订单DTO
+     * 订单及店铺字段通过投影分页查询，本页订单的明细再通过一次投影查询批量加载，
+     * 不再逐个订单懒加载明细和商品
+     *
+     * @param query    查询条件，不需要指定includes
+     * @param pageable 分页参数
+     * @return 订单DTO列表
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDto> findDtoPage(OrderQuery query, Pageable pageable) {
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        QOrderDetail qOrderDetail = QOrderDetail.orderDetail; // 查询订单详情的QueryDSL对象
+
+        List<OrderDto> orders = findPage(query, pageable, Projections.constructor(
+                OrderDto.class,
+                qOrder.id,
+                Projections.constructor(OrderDto.ShopDto.class, qOrder.shop.id, qOrder.shop.name, qOrder.shop.location),
+                qOrder.createTime,
+                qOrder.totalSalesAmount,
+                qOrder.totalProfit
+        )).getContent();
+        if (orders.isEmpty()) {
+            return orders;
+        }
+
+        Map<Integer, OrderDto> orderMap = orders.stream()
+                                                .collect(Collectors.toMap(OrderDto::getId, Function.identity()));
 
-        // 3. 删除订单
-        orderRepository.delete(order);
+        Expression<OrderDto.OrderDetailDto> detailProjection = Projections.constructor(
+                OrderDto.OrderDetailDto.class,
+                qOrderDetail.id,
+                Projections.constructor(OrderDto.OrderDetailDto.ProductDto.class,
+                                        qOrderDetail.product.id, qOrderDetail.product.name, qOrderDetail.product.sort),
+                qOrderDetail.totalSalesAmount,
+                qOrderDetail.totalProfit,
+                qOrderDetail.quantity,
+                qOrderDetail.costPrice,
+                qOrderDetail.salePrice,
+                qOrderDetail.isDefaultPrice
+        );
+        List<Tuple> details = queryFactory.select(qOrderDetail.order.id, detailProjection)
+                                          .from(qOrderDetail)
+                                          .where(qOrderDetail.order.id.in(orderMap.keySet()))
+                                          .orderBy(qOrderDetail.id.asc())
+                                          .fetch();
+        for (Tuple tuple : details) {
+            orderMap.get(tuple.get(qOrderDetail.order.id))
+                    .getOrderDetails()
+                    .add(tuple.get(detailProjection));
+        }
+        return orders;
     }
 
 
@@ -12,13 +12,13 @@ import com.example.modules.query.PriceRuleQuery;
 import com.example.modules.repository.PriceRuleDetailRepository;
 import com.example.modules.repository.PriceRuleRepository;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * 价格规则服务
@@ -90,13 +90,14 @@ public class PriceRuleService implements BaseRepository<PriceRule, PriceRuleQuer
         /**
          * 获取简易价格规则列表
          *
+         * 直接投影为DTO，不加载价格规则实体
+         *
          * @return
          */
     public List<PriceRuleSimpleDto> getSimplePriceRules() {
-        List<PriceRule> priceRules = this.findList(PriceRuleQuery.builder().isDel(false).build());
-        return priceRules.stream()
-                         .map(priceRuleMapper::toPriceRuleSimpleDto)
-                         .collect(Collectors.toList());
+        return this.findList(PriceRuleQuery.builder().isDel(false).build(),
+                             Projections.constructor(PriceRuleSimpleDto.class,
+                                                     priceRule.id, priceRule.name, priceRule.isDie, priceRule.color));
     }
 
 
@@ -0,0 +1,382 @@
+package com.example.modules.service;
+
+import com.example.exception.MyException;
+import com.example.modules.dto.statistics.response.ProductAbcDTO;
+import com.example.modules.dto.statistics.response.ProductRankingDTO;
+import com.example.modules.entity.QOrder;
+import com.example.modules.entity.QOrderDetail;
+import com.example.modules.event.DomainEvent;
+import com.example.modules.event.DomainEventConsumer;
+import com.example.modules.event.OrderCancelledEvent;
+import com.example.modules.event.OrderCreatedEvent;
+import com.example.modules.event.OrderLine;
+import com.example.modules.event.RebuildEventBuffer;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 商品销售排行服务
+ * 在内存中按最近7、30、90天三个窗口维护每个商品的销量、销售额和利润，
+ * 并按利润、销量各保持一个有序集合，排行查询只读取前K项，与历史数据量无关
+ * 窗口在启动时和每天零点从数据库重建，订单创建和取消通过领域事件增量更新；
+ * 重建期间收到的事件暂存，读取完成后只把快照中没有的订单应用到新窗口
+ */
+@Service
+@Slf4j
+public class ProductRankingService implements DomainEventConsumer {
+
+    /**
+     * 支持的窗口天数
+     */
+    private static final int[] WINDOWS = {7, 30, 90};
+
+    private static final Comparator<Stat> BY_PROFIT = Comparator.comparing(Stat::profit)
+                                                                .reversed()
+                                                                .thenComparingInt(Stat::productId);
+
+    private static final Comparator<Stat> BY_QUANTITY = Comparator.comparingInt(Stat::quantity)
+                                                                  .reversed()
+                                                                  .thenComparingInt(Stat::productId);
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Value("${statistics.ranking.abc-a-share:0.8}")
+    private BigDecimal aShare; // A类累计利润占比上限
+
+    @Value("${statistics.ranking.abc-b-share:0.95}")
+    private BigDecimal bShare; // A、B类累计利润占比上限
+
+    private Map<Integer, Window> windows = new HashMap<>(); // 窗口天数 -> 窗口，受this锁保护
+    private LocalDate windowEnd = LocalDate.now(); // 窗口的最后一天（重建当天）
+    private final RebuildEventBuffer buffer = new RebuildEventBuffer(); // 重建期间收到的事件，受this锁保护
+
+    /**
+     * 排序依据
+     */
+    public enum RankBy {
+        PROFIT, // 利润
+        QUANTITY // 销量
+    }
+
+    /**
+     * 商品销售汇总，也用作单个订单明细的增量
+     */
+    public record Stat(int productId, String productName, int quantity, BigDecimal sales, BigDecimal profit) {
+
+        private Stat plus(Stat delta, int sign) {
+            return new Stat(productId, delta.productName() != null ? delta.productName() : productName,
+                            quantity + sign * delta.quantity(),
+                            sales.add(delta.sales()
+                                           .multiply(BigDecimal.valueOf(sign))),
+                            profit.add(delta.profit()
+                                            .multiply(BigDecimal.valueOf(sign))));
+        }
+    }
+
+    /**
+     * 一个滚动窗口
+     */
+    private static class Window {
+        private final int days;
+        private final Map<Integer, Stat> stats = new HashMap<>(); // 商品ID -> 汇总
+        private final TreeSet<Stat> byProfit = new TreeSet<>(BY_PROFIT);
+        private final TreeSet<Stat> byQuantity = new TreeSet<>(BY_QUANTITY);
+        private Map<Integer, String> abcClasses; // ABC分类缓存，数据变化后置空
+        private ProductAbcDTO abc;
+
+        private Window(int days) {
+            this.days = days;
+        }
+
+        private void add(Stat delta, int sign) {
+            Stat old = stats.get(delta.productId());
+            Stat base = old != null ? old : new Stat(delta.productId(), delta.productName(), 0, BigDecimal.ZERO, BigDecimal.ZERO);
+            Stat updated = base.plus(delta, sign);
+            if (old != null) {
+                byProfit.remove(old);
+                byQuantity.remove(old);
+            }
+            if (updated.quantity() == 0 && updated.sales()
+                                                  .signum() == 0 && updated.profit()
+                                                                           .signum() == 0) {
+                stats.remove(updated.productId());
+            } else {
+                stats.put(updated.productId(), updated);
+                byProfit.add(updated);
+                byQuantity.add(updated);
+            }
+            abcClasses = null;
+            abc = null;
+        }
+    }
+
+    /**
+     * 从数据库重建全部窗口
+     * 在主库的可重复读事务中读取，全部查询和订单可见性判断基于同一快照
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${statistics.ranking.rebuild-cron:0 0 0 * * *}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void rebuild() {
+        synchronized (this) {
+            buffer.start();
+        }
+        List<DomainEvent> drained = List.of(); // 已取出、尚未应用到新窗口的事件
+        try {
+            LocalDate today = LocalDate.now();
+            Map<Integer, Window> rebuilt = new HashMap<>();
+            for (int days : WINDOWS) {
+                Window window = new Window(days);
+                for (Stat stat : load(today.minusDays(days - 1)
+                                           .atStartOfDay())) {
+                    window.add(stat, 1);
+                }
+                rebuilt.put(days, window);
+            }
+            while (true) {
+                synchronized (this) {
+                    drained = buffer.drain();
+                    if (drained.isEmpty()) {
+                        windows = rebuilt;
+                        windowEnd = today;
+                        buffer.stop();
+                        break;
+                    }
+                }
+                for (DomainEvent event : buffer.missed(drained, this::existingOrders)) {
+                    apply(rebuilt, today, event);
+                }
+            }
+            log.info("商品销售排行重建完成，90天内有销售的商品{}个", rebuilt.get(90).stats.size());
+        } catch (RuntimeException e) {
+            // 重建失败时保留原窗口，暂存的事件应用到原窗口
+            synchronized (this) {
+                for (DomainEvent event : drained) {
+                    apply(windows, windowEnd, event);
+                }
+                for (DomainEvent event : buffer.stop()) {
+                    apply(windows, windowEnd, event);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean accepts(Class<? extends DomainEvent> type) {
+        return type == OrderCreatedEvent.class || type == OrderCancelledEvent.class;
+    }
+
+    /**
+     * 订单创建、取消后增量更新排行，由事件总线在事务提交后投递
+     */
+    @Override
+    public synchronized void onEvent(DomainEvent event) {
+        if (!buffer.offer(event)) {
+            apply(windows, windowEnd, event);
+        }
+    }
+
+    /**
+     * 查询商品排行
+     *
+     * @param days  窗口天数（7、30、90）
+     * @param by    排序依据
+     * @param limit 返回的商品数量
+     * @return 商品排行
+     */
+    public synchronized ProductRankingDTO getRanking(int days, RankBy by, int limit) {
+        Window window = window(days);
+        Map<Integer, String> classes = classify(window);
+
+        ProductRankingDTO dto = new ProductRankingDTO();
+        dto.setDays(days);
+        dto.setBy(by.name());
+        Iterator<Stat> iterator = (by == RankBy.QUANTITY ? window.byQuantity : window.byProfit).iterator();
+        for (int rank = 1; rank <= limit && iterator.hasNext(); rank++) {
+            Stat stat = iterator.next();
+            ProductRankingDTO.Item item = new ProductRankingDTO.Item();
+            item.setRank(rank);
+            item.setProductId(stat.productId());
+            item.setProductName(stat.productName());
+            item.setQuantity(stat.quantity());
+            item.setVelocity(BigDecimal.valueOf(stat.quantity())
+                                       .divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP));
+            item.setTotalSales(stat.sales());
+            item.setTotalProfit(stat.profit());
+            item.setAbcClass(classes.get(stat.productId()));
+            dto.getItems()
+               .add(item);
+        }
+        return dto;
+    }
+
+    /**
+     * 查询商品ABC分类
+     * 分类结果在窗口数据变化前缓存
+     *
+     * @param days 窗口天数（7、30、90）
+     * @return ABC分类
+     */
+    public synchronized ProductAbcDTO getAbcClassification(int days) {
+        Window window = window(days);
+        classify(window);
+        return window.abc;
+    }
+
+    private Window window(int days) {
+        Window window = windows.get(days);
+        if (window == null) {
+            throw new MyException("仅支持7、30、90天窗口");
+        }
+        return window;
+    }
+
+    /**
+     * 按利润降序累计占比计算ABC分类，利润不为正的商品归为C类
+     */
+    private Map<Integer, String> classify(Window window) {
+        if (window.abcClasses != null) {
+            return window.abcClasses;
+        }
+        BigDecimal total = window.byProfit.stream()
+                                          .map(Stat::profit)
+                                          .filter(profit -> profit.signum() > 0)
+                                          .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<String, ProductAbcDTO.Group> groups = new HashMap<>();
+        for (String abcClass : List.of("A", "B", "C")) {
+            ProductAbcDTO.Group group = new ProductAbcDTO.Group();
+            group.setAbcClass(abcClass);
+            group.setTotalProfit(BigDecimal.ZERO);
+            groups.put(abcClass, group);
+        }
+
+        Map<Integer, String> classes = new HashMap<>();
+        BigDecimal cumulative = BigDecimal.ZERO; // 排在当前商品之前的累计利润
+        for (Stat stat : window.byProfit) {
+            String abcClass;
+            if (stat.profit()
+                    .signum() <= 0) {
+                abcClass = "C";
+            } else if (cumulative.compareTo(total.multiply(aShare)) < 0) {
+                abcClass = "A";
+            } else if (cumulative.compareTo(total.multiply(bShare)) < 0) {
+                abcClass = "B";
+            } else {
+                abcClass = "C";
+            }
+            cumulative = cumulative.add(stat.profit()
+                                            .max(BigDecimal.ZERO));
+            classes.put(stat.productId(), abcClass);
+
+            ProductAbcDTO.Group group = groups.get(abcClass);
+            group.setProductCount(group.getProductCount() + 1);
+            group.setTotalProfit(group.getTotalProfit()
+                                      .add(stat.profit()));
+            group.getProductIds()
+                 .add(stat.productId());
+        }
+
+        ProductAbcDTO abc = new ProductAbcDTO();
+        abc.setDays(window.days);
+        abc.setTotalProfit(total);
+        for (String abcClass : List.of("A", "B", "C")) {
+            ProductAbcDTO.Group group = groups.get(abcClass);
+            group.setProfitShare(total.signum() > 0 ? group.getTotalProfit()
+                                                           .divide(total, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+            abc.getGroups()
+               .add(group);
+        }
+        window.abcClasses = classes;
+        window.abc = abc;
+        return classes;
+    }
+
+    /**
+     * 把订单明细计入包含下单日期的窗口
+     */
+    private static void apply(Map<Integer, Window> target, LocalDate end, DomainEvent event) {
+        switch (event) {
+            case OrderCreatedEvent created -> apply(target, end, created.createTime()
+                                                                       .toLocalDate(), stats(created.lines()), 1);
+            case OrderCancelledEvent cancelled -> apply(target, end, cancelled.createTime()
+                                                                             .toLocalDate(), stats(cancelled.lines()), -1);
+            default -> {
+            }
+        }
+    }
+
+    private static void apply(Map<Integer, Window> target, LocalDate end, LocalDate date, List<Stat> sales, int sign) {
+        for (Window window : target.values()) {
+            if (date.isAfter(end.minusDays(window.days))) {
+                for (Stat stat : sales) {
+                    window.add(stat, sign);
+                }
+            }
+        }
+    }
+
+    /**
+     * 给定订单中在重建快照里存在的订单
+     */
+    private List<Integer> existingOrders(Collection<Integer> orderIds) {
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        return queryFactory.select(qOrder.id)
+                           .from(qOrder)
+                           .where(qOrder.id.in(orderIds))
+                           .fetch();
+    }
+
+    /**
+     * 按商品汇总指定时间之后的订单明细
+     */
+    private List<Stat> load(LocalDateTime from) {
+        QOrderDetail qOrderDetail = QOrderDetail.orderDetail; // 查询订单详情的QueryDSL对象
+        List<Tuple> rows = queryFactory.select(qOrderDetail.product.id, qOrderDetail.product.name, qOrderDetail.quantity.sum(),
+                                               qOrderDetail.totalSalesAmount.sum(), qOrderDetail.totalProfit.sum())
+                                       .from(qOrderDetail)
+                                       .where(qOrderDetail.order.createTime.goe(from))
+                                       .groupBy(qOrderDetail.product.id, qOrderDetail.product.name)
+                                       .fetch();
+        return rows.stream()
+                   .map(row -> {
+                       // Hibernate对整数求和返回Long
+                       Number quantity = row.get(2, Number.class);
+                       BigDecimal sales = row.get(3, BigDecimal.class);
+                       BigDecimal profit = row.get(4, BigDecimal.class);
+                       return new Stat(row.get(qOrderDetail.product.id), row.get(qOrderDetail.product.name),
+                                       quantity == null ? 0 : quantity.intValue(),
+                                       sales == null ? BigDecimal.ZERO : sales,
+                                       profit == null ? BigDecimal.ZERO : profit);
+                   })
+                   .toList();
+    }
+
+    private static List<Stat> stats(List<OrderLine> lines) {
+        return lines.stream()
+                    .map(line -> new Stat(line.productId(), line.productName(), line.quantity(), line.sales(), line.profit()))
+                    .toList();
+    }
+}
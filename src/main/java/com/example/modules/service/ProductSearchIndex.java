@@ -0,0 +1,115 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.product.ProductSearchDto;
+import com.example.modules.entity.QProduct;
+import com.example.modules.utils.ChinesePinyinFirstLetter;
+import com.example.modules.utils.ReloadableSearchIndex;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 商品搜索索引
+ * 在内存中按商品名称、拼音首字母和全拼建立索引，拼音在入索引时用pinyin4j生成一次，查询时不再转换；
+ * 下单界面的商品输入联想不再执行 name LIKE '%x%'
+ * 启动时和每天定时全量构建（同步类别名称），商品新建、修改、删除后增量更新
+ */
+@Service
+@Slf4j
+public class ProductSearchIndex {
+
+    /**
+     * 检索字段权重：名称、拼音首字母、全拼
+     */
+    private static final double[] WEIGHTS = {1.0, 0.9, 0.8};
+
+    private final QProduct product = QProduct.product; // 查询产品的QueryDSL对象
+
+    // 商品搜索结果投影
+    private final Expression<ProductSearchDto> searchProjection = Projections.constructor(
+            ProductSearchDto.class,
+            product.id, product.name, product.category.id, product.category.name,
+            product.defaultSalePrice, product.isBatchManaged);
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Value("${product.search.fuzzy-threshold:0.6}")
+    private double fuzzyThreshold; // 模糊匹配要求的共有两字组比例
+
+    private final ReloadableSearchIndex<ProductSearchDto> index = new ReloadableSearchIndex<>(
+            WEIGHTS, 0.6, this::loadAll, this::loadByIds, ProductSearchDto::getId, this::fields);
+
+    /**
+     * 从数据库全量构建索引
+     * 不在事务中执行：构建期间修改的商品在替换后需要从主库重新读取最新数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${product.search.rebuild-cron:0 25 0 * * *}")
+    public void rebuild() {
+        log.info("商品搜索索引构建完成，共{}个商品", index.rebuild(fuzzyThreshold));
+    }
+
+    /**
+     * 商品新建、修改或删除后更新索引
+     * 在当前事务提交后重新读取这些商品；已删除的商品从索引中移除
+     *
+     * @param productIds 商品ID
+     */
+    public void onProductsChanged(Collection<Integer> productIds) {
+        index.onChanged(productIds);
+    }
+
+    /**
+     * 按名称、拼音首字母或全拼搜索商品
+     *
+     * @param keyword  关键字
+     * @param pageable 分页参数
+     * @return 按匹配程度排序的商品
+     */
+    public Slice<ProductSearchDto> search(String keyword, Pageable pageable) {
+        // 多取一条用于判断是否还有下一页
+        List<ProductSearchDto> content = new ArrayList<>(
+                index.current()
+                     .search(keyword, pageable.getOffset(), pageable.getPageSize() + 1));
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.removeLast();
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    private List<ProductSearchDto> loadAll() {
+        return queryFactory.select(searchProjection)
+                           .from(product)
+                           .where(product.isDel.isFalse())
+                           .fetch();
+    }
+
+    private List<ProductSearchDto> loadByIds(Collection<Integer> ids) {
+        return queryFactory.select(searchProjection)
+                           .from(product)
+                           .where(product.id.in(ids), product.isDel.isFalse())
+                           .fetch();
+    }
+
+    private String[] fields(ProductSearchDto dto) {
+        return new String[]{dto.getName(),
+                            ChinesePinyinFirstLetter.getInitials(dto.getName()),
+                            ChinesePinyinFirstLetter.getPinyin(dto.getName())};
+    }
+}
@@ -52,6 +52,8 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
     private ProductMapper productMapper; // 产品映射器，用于对象转换
     @Autowired
     private ShopService shopService;
+    @Autowired
+    private ProductSearchIndex productSearchIndex; // 商品搜索索引
 
 
     /**软删除商品 */
@@ -60,6 +62,7 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
                 .orElseThrow(() -> new MyException("商品不存在: " + productId));
         product.setDel(true);
         productRepository.save(product);
+        productSearchIndex.onProductsChanged(List.of(productId));
     }
     /**
      * 新建商品
@@ -78,6 +81,7 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
         product.setDel(false);
         product.setSort(productRepository.findMaxSort() + 1);
         productRepository.save(product);
+        productSearchIndex.onProductsChanged(List.of(product.getId()));
     }
 
     /**
@@ -87,16 +91,16 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
      */
     @Transactional
     public void batchUpdate(List<ProductUpdateDto> products) {
-        for (ProductUpdateDto productUpdateDto : products) {
-            Product product = this.findOne(ProductQuery.builder()
-                    .id(productUpdateDto.getId())
-                    .includes(Set.of(ProductQuery.Include.CATEGORY))
-                    .build())
-                    .orElseThrow(() -> new MyException("产品不存在: " + productUpdateDto.getId()));
-
-            Product update = productMapper.partialUpdate(productUpdateDto, product);
-            productRepository.save(update);
-        }
+        // 一次查询加载全部产品，修改在事务提交时批量写回
+        updateAll(products, ProductUpdateDto::getId,
+                  ids -> ProductQuery.builder()
+                                     .ids(ids)
+                                     .includes(Set.of(ProductQuery.Include.CATEGORY))
+                                     .build(),
+                  Product::getId, productMapper::partialUpdate, "产品");
+        productSearchIndex.onProductsChanged(products.stream()
+                                                     .map(ProductUpdateDto::getId)
+                                                     .toList());
     }
 
     /**
@@ -133,6 +137,9 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
         if (query.getId() != null) {
             where.and(product.id.eq(query.getId()));
         }
+        if (query.getIds() != null) {
+            where.and(product.id.in(query.getIds()));
+        }
 
         // 根据产品名称进行模糊查询
         if (query.getName() != null) {
@@ -2,6 +2,7 @@ package com.example.modules.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -14,7 +15,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Prophet销量预测服务
+ * 只在生成采购建议时使用，首次调用时才创建
+ */
 @Service
+@Lazy
 public class ProphetService {
 
     @Value("${prophet.api.url:http://localhost:5000}")
@@ -6,18 +6,29 @@ import com.example.modules.dto.purchase.PurchaseCreateRequest;
 import com.example.modules.dto.statistics.response.ProductSalesInfoDTO;
 import com.example.modules.dto.statistics.response.SalesStatisticsDTO;
 import com.example.modules.entity.*;
+import com.example.modules.event.PurchaseCancelledEvent;
+import com.example.modules.event.PurchaseCreatedEvent;
+import com.example.modules.event.PurchaseLine;
 import com.example.modules.query.ProductQuery;
 import com.example.modules.repository.PurchaseRepository;
+import com.example.modules.utils.JdbcBatch;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 采购管理服务
@@ -42,61 +53,120 @@ public class PurchaseService {
     private BatchService batchService; // 批次服务
 
     @Autowired
-    private ProphetService prophetService; // Prophet预测服务
+    @Lazy
+    private ProphetService prophetService; // Prophet预测服务，首次调用时创建
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量写入
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 领域事件发布，事务提交后投递给派生数据
 
     /**
      * 创建采购订单并入库
+     * 大批量到货按批处理：商品一次查询，批次号一次预留，
+     * 采购明细和批次通过JDBC批处理插入，库存通过多行upsert一次写入
      *
      * @param request 采购订单创建请求
      */
     @Transactional
     public void createPurchaseOrder(PurchaseCreateRequest request) {
-        // 1. 创建采购订单
-        Purchase purchase = new Purchase();
-
-        // 2. 处理每个商品的采购明细
-        for (PurchaseCreateRequest.PurchaseDetailRequest detailRequest : request.getDetails()) {
-            // 获取商品信息
-            Product product = productService.findOne(ProductQuery.builder()
-                                                                 .id(detailRequest.getProductId())
-                                                                 .build())
-                                            .orElseThrow(() -> new MyException("商品不存在: " + detailRequest.getProductId()));
+        List<PurchaseCreateRequest.PurchaseDetailRequest> detailRequests = request.getDetails();
+        if (detailRequests == null || detailRequests.isEmpty()) {
+            throw new MyException("采购明细不能为空");
+        }
 
+        // 1. 一次查询全部商品
+        List<Integer> productIds = detailRequests.stream()
+                                                 .map(PurchaseCreateRequest.PurchaseDetailRequest::getProductId)
+                                                 .distinct()
+                                                 .toList();
+        Map<Integer, Product> productMap = productService.findList(ProductQuery.builder()
+                                                                               .ids(productIds)
+                                                                               .build())
+                                                         .stream()
+                                                         .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // 2. 校验并构建采购明细
+        List<PurchaseDetail> details = new ArrayList<>(detailRequests.size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (PurchaseCreateRequest.PurchaseDetailRequest detailRequest : detailRequests) {
+            Product product = productMap.get(detailRequest.getProductId());
+            if (product == null) {
+                throw new MyException("商品不存在: " + detailRequest.getProductId());
+            }
+            if (product.isBatchManaged() && (detailRequest.getProductionDate() == null || detailRequest.getExpirationDate() == null)) {
+                throw new MyException("批次商品必须提供生产日期和有效期：" + product.getName());
+            }
 
-            // 创建采购明细
             PurchaseDetail detail = new PurchaseDetail();
-            detail.setPurchase(purchase);
             detail.setProduct(product);
             detail.setQuantity(detailRequest.getQuantity());
             detail.setTotalAmount(detailRequest.getTotalAmount());
-            purchase.getPurchaseDetails()
-                    .add(detail);
-
-            // 处理入库
-            if (product.isBatchManaged()) {
-                // 对于需要批次管理的商品，创建批次并入库
-                if (detailRequest.getProductionDate() == null || detailRequest.getExpirationDate() == null) {
-                    throw new MyException("批次商品必须提供生产日期和有效期：" + product.getName());
-                }
-
-                // 创建批次
-                Batch batch = batchService.createBatch(
-                        product,
-                        detail,
-                        detailRequest.getProductionDate(),
-                        detailRequest.getExpirationDate()
-                );
-
-                // 批次入库
-                inventoryService.stockIn(product, batch, detailRequest.getQuantity());
-            } else {
-                // 对于不需要批次管理的商品，直接入库
-                inventoryService.stockIn(product, detailRequest.getQuantity());
-            }
+            details.add(detail);
+            totalAmount = totalAmount.add(detailRequest.getTotalAmount());
         }
 
         // 3. 保存采购订单
+        Purchase purchase = new Purchase();
+        purchase.setTotalAmount(totalAmount);
+        purchase.setState(PurchaseState.已入库);
+        purchase.setInTime(LocalDateTime.now());
         purchaseRepository.save(purchase);
+
+        // 4. 批量插入采购明细
+        List<Integer> detailIds = JdbcBatch.insert(jdbcTemplate, """
+                INSERT INTO purchase_detail (purchase_id, product_id, quantity, total_amount)
+                VALUES (?, ?, ?, ?)
+                """, details, (ps, detail) -> {
+            ps.setInt(1, purchase.getId());
+            ps.setInt(2, detail.getProduct()
+                               .getId());
+            ps.setInt(3, detail.getQuantity());
+            ps.setBigDecimal(4, detail.getTotalAmount());
+        });
+        for (int i = 0; i < details.size(); i++) {
+            details.get(i)
+                   .setId(detailIds.get(i));
+        }
+
+        // 5. 批次商品批量创建批次
+        List<Batch> batches = new ArrayList<>();
+        List<Batch> detailBatches = new ArrayList<>(details.size()); // 与明细一一对应，非批次商品为null
+        for (int i = 0; i < details.size(); i++) {
+            PurchaseDetail detail = details.get(i);
+            if (!detail.getProduct()
+                       .isBatchManaged()) {
+                detailBatches.add(null);
+                continue;
+            }
+            PurchaseCreateRequest.PurchaseDetailRequest detailRequest = detailRequests.get(i);
+            Batch batch = new Batch();
+            batch.setProduct(detail.getProduct());
+            batch.setPurchaseDetail(detail);
+            batch.setProductionDate(detailRequest.getProductionDate());
+            batch.setExpirationDate(detailRequest.getExpirationDate());
+            batch.setCostPrice(detail.getTotalAmount()
+                                     .divide(BigDecimal.valueOf(detail.getQuantity()), 2, RoundingMode.HALF_UP));
+            batches.add(batch);
+            detailBatches.add(batch);
+        }
+        batchService.createBatches(batches);
+
+        // 6. 库存批量入库
+        List<InventoryService.StockInItem> stockInItems = new ArrayList<>(details.size());
+        List<PurchaseLine> lines = new ArrayList<>(details.size());
+        for (int i = 0; i < details.size(); i++) {
+            PurchaseDetail detail = details.get(i);
+            Batch batch = detailBatches.get(i);
+            Integer batchId = batch == null ? null : batch.getId();
+            stockInItems.add(new InventoryService.StockInItem(detail.getProduct()
+                                                                    .getId(), batchId, detail.getQuantity()));
+            lines.add(new PurchaseLine(detail.getProduct()
+                                             .getId(), batchId, detail.getQuantity(), detail.getTotalAmount()));
+        }
+        inventoryService.bulkStockIn(stockInItems, OperationType.采购入库);
+        eventPublisher.publishEvent(new PurchaseCreatedEvent(purchase.getId(), purchase.getInTime(), totalAmount, lines));
     }
 
     /**
@@ -110,6 +180,16 @@ public class PurchaseService {
         Purchase purchase = purchaseRepository.findById(purchaseId)
                                               .orElseThrow(() -> new MyException("采购单不存在: " + purchaseId));
 
+        List<PurchaseLine> lines = purchase.getPurchaseDetails()
+                                           .stream()
+                                           .map(item -> new PurchaseLine(item.getProduct()
+                                                                             .getId(),
+                                                                         item.getBatch() == null ? null : item.getBatch()
+                                                                                                              .getId(),
+                                                                         item.getQuantity(), item.getTotalAmount()))
+                                           .toList();
+        eventPublisher.publishEvent(new PurchaseCancelledEvent(purchaseId, purchase.getInTime(), purchase.getTotalAmount(), lines));
+
         // 2. 检查订单状态是否为已完成
         if (purchase.getState() == PurchaseState.已下单) {
             // 已下单逻辑，直接删除采购订单
@@ -123,11 +203,11 @@ public class PurchaseService {
                 if (product.isBatchManaged()) {
                     // 对于批次商品，需要从对应批次出库
                     if (item.getBatch() != null) {
-                        inventoryService.stockOut(product, item.getBatch(), item.getQuantity());
+                        inventoryService.stockOut(product, item.getBatch(), item.getQuantity(), OperationType.取消采购订单, null);
                     }
                 } else {
                     // 对于非批次商品，直接出库
-                    inventoryService.stockOut(product, item.getQuantity());
+                    inventoryService.stockOut(product, item.getQuantity(), OperationType.取消采购订单, null);
                 }
             }
             // 删除采购订单
@@ -174,6 +254,7 @@ public class PurchaseService {
      * @param safetyStockDays 安全库存天数，默认为14天
      * @return Map<Integer, Integer> 商品ID到建议采购数量的映射
      */
+    @Transactional(readOnly = true)
     public Map<Integer, Integer> generatePurchaseSuggestions(int daysToAnalyze, int leadTimeDays, int safetyStockDays) {
         // 获取所有在售商品
         List<Product> activeProducts = productService.findList(ProductQuery.builder()
@@ -230,6 +311,7 @@ public class PurchaseService {
      * @param safetyStockDays 安全库存天数，默认为14天
      * @return Map<Integer, Integer> 商品ID到建议采购数量的映射
      */
+    @Transactional(readOnly = true)
     public Map<Integer, Integer> generatePurchaseSuggestionsByProphet( int safetyStockDays) {
         // 获取所有在售商品
         List<Product> activeProducts = productService.findList(ProductQuery.builder()
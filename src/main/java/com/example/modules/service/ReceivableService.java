@@ -0,0 +1,346 @@
+package com.example.modules.service;
+
+import com.example.exception.MyException;
+import com.example.modules.dto.receivable.ReceivableAgingDto;
+import com.example.modules.dto.receivable.ReceivableEntryDto;
+import com.example.modules.entity.QReceivableEntry;
+import com.example.modules.entity.QShop;
+import com.example.modules.entity.ReceivableEntry;
+import com.example.modules.entity.ReceivableType;
+import com.example.modules.entity.Shop;
+import com.example.modules.repository.ReceivableEntryRepository;
+import com.example.modules.utils.TransactionHooks;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 应收账款服务
+ * 欠款变动只追加到流水表，每条流水保存记账后的余额，shop.arrears随之增量更新为最新余额；
+ * 同一商家的记账通过锁定商家行串行执行
+ * <p>
+ * 内存中按商家维护未结清的欠款（收款按先进先出冲抵最早的欠款），账龄报表直接从内存计算，
+ * 不再扫描历史流水；启动时和每天定时从流水重建。
+ * 重建期间提交的流水同时暂存，替换时补记到新数据上；每个商家记录已计入的最大流水ID，
+ * 同一商家的流水按ID顺序提交，已在重建结果中的流水不会重复计入
+ */
+@Service
+@Slf4j
+public class ReceivableService {
+
+    @PersistenceContext
+    private EntityManager entityManager; // 实体管理器，用于记账时锁定商家
+
+    @Autowired
+    private ReceivableEntryRepository receivableEntryRepository; // 应收账款流水仓库
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    /**
+     * 商家ID -> 未结清欠款
+     */
+    private volatile Map<Integer, Account> accounts = new HashMap<>();
+
+    private List<Posted> postedDuringRebuild; // 重建期间提交的流水，受this锁保护；null表示不在重建
+
+    /**
+     * 已提交的流水
+     */
+    private record Posted(int shopId, int entryId, LocalDate date, BigDecimal amount) {
+    }
+
+    /**
+     * 商家的未结清欠款
+     * 余额 = 未结清欠款合计 - 预收
+     */
+    static final class Account {
+        private final Deque<OpenCharge> open = new ArrayDeque<>(); // 按发生日期先后排列
+        private BigDecimal credit = BigDecimal.ZERO; // 预收（多收的款项），冲抵之后的欠款
+        private BigDecimal balance = BigDecimal.ZERO;
+        private int lastEntryId; // 已计入的最大流水ID
+
+        void apply(LocalDate date, BigDecimal amount) {
+            balance = balance.add(amount);
+            if (amount.signum() > 0) {
+                BigDecimal rest = amount;
+                if (credit.signum() > 0) {
+                    BigDecimal used = credit.min(rest);
+                    credit = credit.subtract(used);
+                    rest = rest.subtract(used);
+                }
+                if (rest.signum() > 0) {
+                    open.addLast(new OpenCharge(date, rest));
+                }
+            } else if (amount.signum() < 0) {
+                BigDecimal rest = amount.negate();
+                while (rest.signum() > 0 && !open.isEmpty()) {
+                    OpenCharge first = open.peekFirst();
+                    if (first.remaining.compareTo(rest) <= 0) {
+                        rest = rest.subtract(first.remaining);
+                        open.pollFirst();
+                    } else {
+                        first.remaining = first.remaining.subtract(rest);
+                        rest = BigDecimal.ZERO;
+                    }
+                }
+                credit = credit.add(rest);
+            }
+        }
+
+        /**
+         * 未结清欠款按发生日期距today的天数分为0-30、31-60、61-90、90天以上
+         */
+        BigDecimal[] aging(LocalDate today) {
+            BigDecimal[] buckets = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+            for (OpenCharge charge : open) {
+                long days = ChronoUnit.DAYS.between(charge.date, today);
+                int bucket = days <= 30 ? 0 : days <= 60 ? 1 : days <= 90 ? 2 : 3;
+                buckets[bucket] = buckets[bucket].add(charge.remaining);
+            }
+            return buckets;
+        }
+    }
+
+    private static final class OpenCharge {
+        private final LocalDate date;
+        private BigDecimal remaining;
+
+        private OpenCharge(LocalDate date, BigDecimal remaining) {
+            this.date = date;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * 从流水重建内存中的未结清欠款
+     * 从主库读取：副本的延迟会漏掉重建开始前已提交、已计入旧数据的流水
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${receivable.rebuild-cron:0 40 0 * * *}")
+    @Transactional
+    public void rebuild() {
+        synchronized (this) {
+            postedDuringRebuild = new ArrayList<>();
+        }
+        QReceivableEntry qEntry = QReceivableEntry.receivableEntry; // 查询应收账款流水的QueryDSL对象
+        Map<Integer, Account> newAccounts = new HashMap<>();
+        int rows = 0;
+        try (Stream<Tuple> stream = queryFactory.select(qEntry.id, qEntry.shopId, qEntry.entryTime, qEntry.amount)
+                                                .from(qEntry)
+                                                .orderBy(qEntry.id.asc())
+                                                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                                                .stream()) {
+            for (Tuple row : (Iterable<Tuple>) stream::iterator) {
+                apply(newAccounts, new Posted(row.get(qEntry.shopId), row.get(qEntry.id), row.get(qEntry.entryTime)
+                                                                                             .toLocalDate(),
+                                              row.get(qEntry.amount)));
+                rows++;
+            }
+        } catch (RuntimeException e) {
+            // 重建期间的流水已计入原数据，保留原数据即可
+            synchronized (this) {
+                postedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            for (Posted posted : postedDuringRebuild) {
+                apply(newAccounts, posted);
+            }
+            postedDuringRebuild = null;
+            accounts = newAccounts;
+        }
+        log.info("应收账款重建完成，{}条流水，{}个商家", rows, newAccounts.size());
+    }
+
+    /**
+     * 记账
+     *
+     * @param shopId  商家ID
+     * @param type    类型
+     * @param amount  金额：销售欠款、收款为正数；调整为正表示增加欠款，为负表示减少欠款
+     * @param orderId 关联订单ID（可选）
+     * @param remark  备注
+     * @return 流水
+     */
+    @Transactional
+    public ReceivableEntryDto record(Integer shopId, ReceivableType type, BigDecimal amount, Integer orderId, String remark) {
+        if (type == null || amount == null || amount.signum() == 0) {
+            throw new MyException("记账类型和金额不能为空");
+        }
+        if (type != ReceivableType.调整 && amount.signum() < 0) {
+            throw new MyException(type + "金额必须为正数");
+        }
+        Shop shop = lockShop(shopId);
+        return post(shop, type, type == ReceivableType.收款 ? amount.negate() : amount, orderId, remark);
+    }
+
+    /**
+     * 把商家欠款调整为指定金额，差额记为一条调整流水
+     * 商家须已在当前事务中以FOR UPDATE锁定，欠款以锁定时读到的为准，这里不再逐个锁定和刷新
+     *
+     * @param shop    已锁定的商家
+     * @param arrears 调整后的欠款
+     * @param remark  备注
+     * @return 流水，金额没有变化时为null
+     */
+    @Transactional
+    public ReceivableEntryDto adjustTo(Shop shop, BigDecimal arrears, String remark) {
+        BigDecimal difference = arrears.subtract(shop.getArrears());
+        if (difference.signum() == 0) {
+            return null;
+        }
+        return post(shop, ReceivableType.调整, difference, null, remark);
+    }
+
+    /**
+     * 分页查询商家的流水，最新的在前
+     */
+    @Transactional(readOnly = true)
+    public Slice<ReceivableEntryDto> findEntries(Integer shopId, Pageable pageable) {
+        return receivableEntryRepository.findByShopIdOrderByIdDesc(shopId, pageable)
+                                        .map(this::toDto);
+    }
+
+    /**
+     * 账龄报表
+     * 未结清欠款按发生日期距今天数分为0-30、31-60、61-90、90天以上
+     */
+    public ReceivableAgingDto getAging() {
+        LocalDate today = LocalDate.now();
+        ReceivableAgingDto dto = new ReceivableAgingDto();
+        dto.setDate(today);
+
+        synchronized (this) {
+            accounts.forEach((shopId, account) -> {
+                if (account.balance.signum() <= 0) {
+                    return;
+                }
+                BigDecimal[] buckets = account.aging(today);
+                OpenCharge oldest = account.open.peekFirst();
+                dto.getShops()
+                   .add(new ReceivableAgingDto.ShopAging(shopId, null, null, account.balance,
+                                                         buckets[0], buckets[1], buckets[2], buckets[3],
+                                                         oldest == null ? null : oldest.date));
+            });
+        }
+
+        for (ReceivableAgingDto.ShopAging shop : dto.getShops()) {
+            dto.setTotal(dto.getTotal()
+                            .add(shop.getBalance()));
+            dto.setDays0To30(dto.getDays0To30()
+                                .add(shop.getDays0To30()));
+            dto.setDays31To60(dto.getDays31To60()
+                                 .add(shop.getDays31To60()));
+            dto.setDays61To90(dto.getDays61To90()
+                                 .add(shop.getDays61To90()));
+            dto.setOver90(dto.getOver90()
+                             .add(shop.getOver90()));
+        }
+        fillShopNames(dto);
+        dto.getShops()
+           .sort(Comparator.comparing(ReceivableAgingDto.ShopAging::getBalance)
+                           .reversed());
+        return dto;
+    }
+
+    /**
+     * 锁定商家行并从数据库刷新欠款，同一商家的记账串行执行
+     */
+    private Shop lockShop(Integer shopId) {
+        Shop shop = entityManager.find(Shop.class, shopId);
+        if (shop == null) {
+            throw new MyException("商家不存在: " + shopId);
+        }
+        entityManager.refresh(shop, LockModeType.PESSIMISTIC_WRITE);
+        return shop;
+    }
+
+    private ReceivableEntryDto post(Shop shop, ReceivableType type, BigDecimal amount, Integer orderId, String remark) {
+        BigDecimal balance = shop.getArrears()
+                                 .add(amount);
+        shop.setArrears(balance);
+        ReceivableEntry entry = receivableEntryRepository.save(
+                new ReceivableEntry(null, shop.getId(), type, amount, balance, LocalDateTime.now(), orderId, remark));
+
+        Posted posted = new Posted(shop.getId(), entry.getId(), entry.getEntryTime()
+                                                                 .toLocalDate(), amount);
+        TransactionHooks.afterCommit(() -> onPosted(posted));
+        return toDto(entry);
+    }
+
+    private synchronized void onPosted(Posted posted) {
+        apply(accounts, posted);
+        if (postedDuringRebuild != null) {
+            postedDuringRebuild.add(posted);
+        }
+    }
+
+    /**
+     * 计入一条流水，ID不大于该商家已计入的最大ID时跳过
+     */
+    private static void apply(Map<Integer, Account> target, Posted posted) {
+        Account account = target.computeIfAbsent(posted.shopId(), key -> new Account());
+        if (posted.entryId() <= account.lastEntryId) {
+            return;
+        }
+        account.lastEntryId = posted.entryId();
+        account.apply(posted.date(), posted.amount());
+    }
+
+    private void fillShopNames(ReceivableAgingDto dto) {
+        if (dto.getShops()
+               .isEmpty()) {
+            return;
+        }
+        QShop qShop = QShop.shop; // 查询商家的QueryDSL对象
+        Map<Integer, Tuple> shops = new HashMap<>();
+        for (Tuple row : queryFactory.select(qShop.id, qShop.name, qShop.location)
+                                     .from(qShop)
+                                     .where(qShop.id.in(dto.getShops()
+                                                           .stream()
+                                                           .map(ReceivableAgingDto.ShopAging::getShopId)
+                                                           .toList()))
+                                     .fetch()) {
+            shops.put(row.get(qShop.id), row);
+        }
+        for (ReceivableAgingDto.ShopAging aging : dto.getShops()) {
+            Tuple row = shops.get(aging.getShopId());
+            if (row != null) {
+                aging.setName(row.get(qShop.name));
+                aging.setLocation(row.get(qShop.location));
+            }
+        }
+    }
+
+    private ReceivableEntryDto toDto(ReceivableEntry entry) {
+        return new ReceivableEntryDto(entry.getId(), entry.getShopId(), entry.getEntryType(), entry.getAmount(),
+                                      entry.getBalance(), entry.getEntryTime(), entry.getOrderId(), entry.getRemark());
+    }
+}
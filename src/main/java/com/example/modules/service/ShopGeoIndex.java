@@ -0,0 +1,273 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.shop.ShopNearbyDto;
+import com.example.modules.entity.QShop;
+import com.example.modules.entity.Shop;
+import com.example.modules.utils.GeoUtils;
+import com.example.modules.utils.TransactionHooks;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 店铺空间索引
+ * 按固定经纬度大小的网格在内存中索引所有有坐标的未删除店铺，
+ * 附近店铺和矩形范围查询只访问覆盖查询范围的网格，不再加载全部店铺
+ * 启动时从数据库全量构建，店铺新建和修改后增量更新；
+ * 构建期间更新过的店铺不一定在全量读取的结果中，替换后从主库重新读取一次
+ */
+@Service
+@Slf4j
+public class ShopGeoIndex {
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Value("${shop.geo.cell-degrees:0.01}")
+    private double cellDegrees; // 网格边长（度），0.01度约1.1公里
+
+    /**
+     * 网格键 -> (店铺ID -> 索引项)
+     */
+    private volatile Map<Long, Map<Integer, Point>> cells = new ConcurrentHashMap<>();
+
+    /**
+     * 店铺ID -> 索引项，用于增量更新时定位旧网格
+     */
+    private volatile Map<Integer, Point> byShop = new ConcurrentHashMap<>();
+
+    private Set<Integer> changedDuringRebuild; // 构建期间更新过的店铺ID，受this锁保护；null表示不在构建
+
+    /**
+     * 索引项
+     */
+    public record Point(int id, String name, String location, BigDecimal longitude, BigDecimal latitude,
+                        double lng, double lat) {
+
+        private ShopNearbyDto toDto(double distance) {
+            return new ShopNearbyDto(id, name, location, longitude, latitude, distance);
+        }
+    }
+
+    /**
+     * 从数据库全量构建索引
+     * 不在事务中执行：从主库读取，替换后重新读取的店铺也能看到最新数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        Map<Long, Map<Integer, Point>> newCells = new ConcurrentHashMap<>();
+        Map<Integer, Point> newByShop = new ConcurrentHashMap<>();
+        try {
+            for (Point point : load(null)) {
+                newCells.computeIfAbsent(cellKey(point.lat(), point.lng()), key -> new ConcurrentHashMap<>())
+                        .put(point.id(), point);
+                newByShop.put(point.id(), point);
+            }
+        } catch (RuntimeException e) {
+            // 构建失败时保留原索引，期间的修改已更新到原索引
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+        Set<Integer> changed;
+        synchronized (this) {
+            cells = newCells;
+            byShop = newByShop;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        if (!changed.isEmpty()) {
+            reload(changed);
+        }
+        log.info("店铺空间索引构建完成，共{}个店铺，重新读取{}个构建期间修改的店铺", newByShop.size(), changed.size());
+    }
+
+    /**
+     * 店铺新建或修改后更新索引
+     * 在当前事务提交后生效；已删除或没有坐标的店铺从索引中移除
+     *
+     * @param shop 店铺
+     */
+    public void onShopChanged(Shop shop) {
+        Point point = shop.isDel() || shop.getLatitude() == null || shop.getLongitude() == null ? null
+                : toPoint(shop.getId(), shop.getName(), shop.getLocation(), shop.getLongitude(), shop.getLatitude());
+        int shopId = shop.getId();
+        TransactionHooks.afterCommit(() -> apply(shopId, point));
+    }
+
+    /**
+     * 查询附近的店铺
+     *
+     * @param lat    纬度
+     * @param lng    经度
+     * @param radius 半径（米）
+     * @param limit  最多返回的店铺数量
+     * @return 按距离升序排列的店铺
+     */
+    public List<ShopNearbyDto> findNearby(double lat, double lng, double radius, int limit) {
+        double dLat = radius / GeoUtils.METERS_PER_DEGREE;
+        double dLng = radius / (GeoUtils.METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+
+        List<ShopNearbyDto> result = new ArrayList<>();
+        for (Point point : candidates(lat - dLat, lng - dLng, lat + dLat, lng + dLng)) {
+            double distance = GeoUtils.distance(lat, lng, point.lat(), point.lng());
+            if (distance <= radius) {
+                result.add(point.toDto(distance));
+            }
+        }
+        result.sort(Comparator.comparingDouble(ShopNearbyDto::getDistance));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * 查询矩形范围内的店铺
+     *
+     * @return 范围内的店铺，距离为0
+     */
+    public List<ShopNearbyDto> findWithin(double minLat, double minLng, double maxLat, double maxLng) {
+        List<ShopNearbyDto> result = new ArrayList<>();
+        for (Point point : candidates(minLat, minLng, maxLat, maxLng)) {
+            if (point.lat() >= minLat && point.lat() <= maxLat && point.lng() >= minLng && point.lng() <= maxLng) {
+                result.add(point.toDto(0));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取索引中的店铺
+     *
+     * @param shopId 店铺ID
+     * @return 索引项，不存在时为null
+     */
+    public Point get(int shopId) {
+        return byShop.get(shopId);
+    }
+
+    /**
+     * 覆盖矩形范围的网格中的店铺
+     * 范围覆盖的网格数多于店铺数时直接遍历全部店铺
+     */
+    private Collection<Point> candidates(double minLat, double minLng, double maxLat, double maxLng) {
+        long minLatCell = cell(minLat);
+        long maxLatCell = cell(maxLat);
+        long minLngCell = cell(minLng);
+        long maxLngCell = cell(maxLng);
+        Map<Integer, Point> all = byShop;
+        if ((maxLatCell - minLatCell + 1) * (maxLngCell - minLngCell + 1) > all.size()) {
+            return all.values();
+        }
+        Map<Long, Map<Integer, Point>> grid = cells;
+        List<Point> points = new ArrayList<>();
+        for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (long lngCell = minLngCell; lngCell <= maxLngCell; lngCell++) {
+                Map<Integer, Point> bucket = grid.get(key(latCell, lngCell));
+                if (bucket != null) {
+                    points.addAll(bucket.values());
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * 从数据库重新读取店铺并更新索引，已删除或没有坐标的店铺从索引中移除
+     */
+    private synchronized void reload(Collection<Integer> shopIds) {
+        Map<Integer, Point> loaded = new HashMap<>();
+        for (Point point : load(shopIds)) {
+            loaded.put(point.id(), point);
+        }
+        for (Integer shopId : shopIds) {
+            apply(shopId, loaded.get(shopId));
+        }
+    }
+
+    /**
+     * 查询有坐标的未删除店铺
+     *
+     * @param shopIds 店铺ID，为null时查询全部
+     */
+    private List<Point> load(Collection<Integer> shopIds) {
+        QShop qShop = QShop.shop; // 查询商家的QueryDSL对象
+        BooleanBuilder where = new BooleanBuilder();
+        where.and(qShop.isDel.isFalse());
+        where.and(qShop.latitude.isNotNull());
+        where.and(qShop.longitude.isNotNull());
+        if (shopIds != null) {
+            where.and(qShop.id.in(shopIds));
+        }
+        List<Point> points = new ArrayList<>();
+        for (Tuple row : queryFactory.select(qShop.id, qShop.name, qShop.location, qShop.longitude, qShop.latitude)
+                                     .from(qShop)
+                                     .where(where)
+                                     .fetch()) {
+            points.add(toPoint(row.get(qShop.id), row.get(qShop.name), row.get(qShop.location),
+                               row.get(qShop.longitude), row.get(qShop.latitude)));
+        }
+        return points;
+    }
+
+    /**
+     * 替换或移除某个店铺的索引项
+     */
+    private synchronized void apply(int shopId, Point point) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(shopId);
+        }
+        Point old = byShop.remove(shopId);
+        if (old != null) {
+            long oldKey = cellKey(old.lat(), old.lng());
+            Map<Integer, Point> bucket = cells.get(oldKey);
+            if (bucket != null) {
+                bucket.remove(shopId);
+                if (bucket.isEmpty()) {
+                    cells.remove(oldKey);
+                }
+            }
+        }
+        if (point == null) {
+            return;
+        }
+        cells.computeIfAbsent(cellKey(point.lat(), point.lng()), key -> new ConcurrentHashMap<>())
+             .put(shopId, point);
+        byShop.put(shopId, point);
+    }
+
+    private Point toPoint(int id, String name, String location, BigDecimal longitude, BigDecimal latitude) {
+        return new Point(id, name, location, longitude, latitude, longitude.doubleValue(), latitude.doubleValue());
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private long cellKey(double lat, double lng) {
+        return key(cell(lat), cell(lng));
+    }
+
+    private static long key(long latCell, long lngCell) {
+        return (latCell << 32) ^ (lngCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.modules.service;
+
+import com.example.exception.MyException;
+import com.example.modules.dto.shop.ShopImportDto;
+import com.example.modules.dto.shop.ShopImportResultDto;
+import com.example.modules.entity.QPriceRule;
+import com.example.modules.entity.Shop;
+import com.example.modules.utils.ChinesePinyinFirstLetter;
+import com.example.modules.utils.JdbcBatch;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 店铺批量导入服务
+ * 读取CSV或JSON，价格规则一次性加载，各行的校验和拼音计算并行进行，
+ * 校验通过的行在一个事务中通过JDBC批处理插入；未通过的行逐行返回错误原因
+ */
+@Service
+@Slf4j
+public class ShopImportService {
+
+    private static final int NAME_MAX_LENGTH = 20;
+    private static final int LOCATION_MAX_LENGTH = 20;
+    private static final int COORDINATE_SCALE = 6;
+
+    /**
+     * CSV表头 -> 字段，支持英文和中文表头
+     */
+    private static final Map<String, String> CSV_COLUMNS = Map.ofEntries(
+            Map.entry("name", "name"), Map.entry("名称", "name"),
+            Map.entry("location", "location"), Map.entry("地址", "location"),
+            Map.entry("pricerule", "priceRule"), Map.entry("priceruleid", "priceRule"), Map.entry("价格规则", "priceRule"),
+            Map.entry("longitude", "longitude"), Map.entry("经度", "longitude"),
+            Map.entry("latitude", "latitude"), Map.entry("纬度", "latitude"));
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量插入
+
+    @Autowired
+    private PlatformTransactionManager transactionManager; // 事务管理器
+
+    @Autowired
+    private ObjectMapper objectMapper; // JSON解析
+
+    @Autowired
+    private ShopGeoIndex shopGeoIndex; // 店铺空间索引
+
+    @Autowired
+    private ShopSearchIndex shopSearchIndex; // 店铺搜索索引
+
+    @Value("${shop.import.max-rows:10000}")
+    private int maxRows; // 单次导入的最大行数
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 校验通过的行
+     */
+    private record ValidRow(String name, String location, char pinyin, int priceRuleId,
+                            BigDecimal longitude, BigDecimal latitude) {
+    }
+
+    /**
+     * 单行校验结果，valid与error有且只有一个不为空
+     */
+    private record Checked(ValidRow valid, ShopImportResultDto.RowError error) {
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 导入CSV
+     * 第一行为表头：name/名称、location/地址、priceRule/价格规则（ID或名称）、longitude/经度、latitude/纬度
+     *
+     * @param input UTF-8编码的CSV
+     * @return 导入结果
+     */
+    public ShopImportResultDto importCsv(InputStream input) {
+        List<ShopImportDto> rows = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                return importRows(rows);
+            }
+            String[] fields = new String[header.length];
+            for (int i = 0; i < header.length; i++) {
+                String column = header[i].replace("\uFEFF", "")
+                                         .trim()
+                                         .toLowerCase(Locale.ROOT);
+                fields[i] = CSV_COLUMNS.get(column);
+            }
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                if (line.length == 1 && line[0].isBlank()) {
+                    continue; // 空行
+                }
+                checkSize(rows.size());
+                ShopImportDto row = new ShopImportDto();
+                for (int i = 0; i < line.length && i < fields.length; i++) {
+                    if (fields[i] != null) {
+                        set(row, fields[i], line[i]);
+                    }
+                }
+                rows.add(row);
+            }
+        } catch (IOException | CsvValidationException e) {
+            throw new MyException("CSV格式错误: " + e.getMessage());
+        }
+        return importRows(rows);
+    }
+
+    /**
+     * 导入JSON数组，元素字段与CSV表头相同
+     *
+     * @param input JSON数组
+     * @return 导入结果
+     */
+    public ShopImportResultDto importJson(InputStream input) {
+        List<ShopImportDto> rows = new ArrayList<>();
+        try (MappingIterator<ShopImportDto> iterator = objectMapper.readerFor(ShopImportDto.class)
+                                                                   .readValues(input)) {
+            while (iterator.hasNextValue()) {
+                checkSize(rows.size());
+                rows.add(iterator.nextValue());
+            }
+        } catch (IOException e) {
+            throw new MyException("JSON格式错误: " + e.getMessage());
+        }
+        return importRows(rows);
+    }
+
+    private ShopImportResultDto importRows(List<ShopImportDto> rows) {
+        ShopImportResultDto result = new ShopImportResultDto();
+        result.setTotal(rows.size());
+        if (rows.isEmpty()) {
+            return result;
+        }
+
+        // 1. 价格规则一次性加载
+        QPriceRule qPriceRule = QPriceRule.priceRule; // 查询价格规则的QueryDSL对象
+        Set<Integer> ruleIds = new HashSet<>();
+        Map<String, Integer> ruleNames = new HashMap<>();
+        for (Tuple rule : queryFactory.select(qPriceRule.id, qPriceRule.name)
+                                      .from(qPriceRule)
+                                      .fetch()) {
+            ruleIds.add(rule.get(qPriceRule.id));
+            if (rule.get(qPriceRule.name) != null) {
+                ruleNames.putIfAbsent(rule.get(qPriceRule.name)
+                                          .trim(), rule.get(qPriceRule.id));
+            }
+        }
+
+        // 2. 并行校验并计算拼音首字母
+        List<Checked> checked = IntStream.range(0, rows.size())
+                                         .parallel()
+                                         .mapToObj(i -> check(i + 1, rows.get(i), ruleIds, ruleNames))
+                                         .toList();
+        List<ValidRow> valid = new ArrayList<>();
+        for (Checked row : checked) {
+            if (row.valid() != null) {
+                valid.add(row.valid());
+            } else {
+                result.getErrors()
+                      .add(row.error());
+            }
+        }
+
+        // 3. 批量插入
+        LocalDate today = LocalDate.now();
+        List<Integer> ids = transactionTemplate.execute(status -> JdbcBatch.insert(jdbcTemplate, """
+                INSERT INTO shop (name, location, pinyin, create_time, is_del, price_rule_id, arrears, longitude, latitude, slow)
+                VALUES (?, ?, ?, ?, 0, ?, 0, ?, ?, 0)
+                """, valid, (ps, row) -> {
+            ps.setString(1, row.name());
+            ps.setString(2, row.location());
+            ps.setString(3, String.valueOf(row.pinyin()));
+            ps.setDate(4, Date.valueOf(today));
+            ps.setInt(5, row.priceRuleId());
+            ps.setObject(6, row.longitude(), Types.DECIMAL);
+            ps.setObject(7, row.latitude(), Types.DECIMAL);
+        }));
+        result.setIds(new ArrayList<>(ids));
+        result.setImported(ids.size());
+
+        // 4. 更新内存索引
+        for (int i = 0; i < ids.size(); i++) {
+            ValidRow row = valid.get(i);
+            Shop shop = new Shop();
+            shop.setId(ids.get(i));
+            shop.setName(row.name());
+            shop.setLocation(row.location());
+            shop.setLongitude(row.longitude());
+            shop.setLatitude(row.latitude());
+            shopGeoIndex.onShopChanged(shop);
+        }
+        shopSearchIndex.onShopsChanged(ids);
+
+        log.info("店铺导入完成，共{}行，导入{}行，失败{}行", rows.size(), ids.size(), result.getErrors()
+                                                                                  .size());
+        return result;
+    }
+
+    private Checked check(int rowNumber, ShopImportDto row, Set<Integer> ruleIds, Map<String, Integer> ruleNames) {
+        String name = trim(row.getName());
+        String location = trim(row.getLocation());
+        String priceRule = trim(row.getPriceRule());
+        List<String> messages = new ArrayList<>();
+
+        if (name == null) {
+            messages.add("名称不能为空");
+        } else if (name.length() > NAME_MAX_LENGTH) {
+            messages.add("名称不能超过" + NAME_MAX_LENGTH + "个字");
+        }
+        if (location == null) {
+            messages.add("地址不能为空");
+        } else if (location.length() > LOCATION_MAX_LENGTH) {
+            messages.add("地址不能超过" + LOCATION_MAX_LENGTH + "个字");
+        }
+
+        Integer priceRuleId = null;
+        if (priceRule == null) {
+            messages.add("价格规则不能为空");
+        } else {
+            priceRuleId = ruleNames.get(priceRule);
+            if (priceRuleId == null && priceRule.length() <= 9 && priceRule.chars()
+                                                                           .allMatch(Character::isDigit)
+                    && ruleIds.contains(Integer.valueOf(priceRule))) {
+                priceRuleId = Integer.valueOf(priceRule);
+            }
+            if (priceRuleId == null) {
+                messages.add("价格规则不存在: " + priceRule);
+            }
+        }
+
+        BigDecimal longitude = coordinate(row.getLongitude(), 180, "经度", messages);
+        BigDecimal latitude = coordinate(row.getLatitude(), 90, "纬度", messages);
+        if ((longitude == null) != (latitude == null) && messages.isEmpty()) {
+            messages.add("经度和纬度需要同时填写");
+        }
+
+        if (!messages.isEmpty()) {
+            return new Checked(null, new ShopImportResultDto.RowError(rowNumber, name, String.join("；", messages)));
+        }
+        return new Checked(new ValidRow(name, location, ChinesePinyinFirstLetter.getFirstLetterOfFirstCharacter(name),
+                                        priceRuleId, longitude, latitude), null);
+    }
+
+    private BigDecimal coordinate(String text, int limit, String label, List<String> messages) {
+        String value = trim(text);
+        if (value == null) {
+            return null;
+        }
+        try {
+            BigDecimal coordinate = new BigDecimal(value);
+            if (coordinate.abs()
+                          .compareTo(BigDecimal.valueOf(limit)) > 0) {
+                messages.add(label + "超出范围: " + value);
+                return null;
+            }
+            return coordinate.setScale(COORDINATE_SCALE, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            messages.add(label + "格式错误: " + value);
+            return null;
+        }
+    }
+
+    private void checkSize(int size) {
+        if (size >= maxRows) {
+            throw new MyException("单次最多导入" + maxRows + "行");
+        }
+    }
+
+    private static void set(ShopImportDto row, String field, String value) {
+        switch (field) {
+            case "name" -> row.setName(value);
+            case "location" -> row.setLocation(value);
+            case "priceRule" -> row.setPriceRule(value);
+            case "longitude" -> row.setLongitude(value);
+            case "latitude" -> row.setLatitude(value);
+            default -> {
+            }
+        }
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.strip();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.statistics.response.ShopStatisticsDTO;
+import com.example.modules.entity.QOrder;
+import com.example.modules.entity.Shop;
+import com.example.modules.event.DomainEvent;
+import com.example.modules.event.DomainEventConsumer;
+import com.example.modules.event.OrderCancelledEvent;
+import com.example.modules.event.OrderCreatedEvent;
+import com.example.modules.event.RebuildEventBuffer;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 商家经营指标服务
+ * 在内存中为每个商家维护累计销售额、利润、订单数，以及最近90天按天的汇总，
+ * 最近7、30、90天的指标在查询时由不超过90个日汇总相加得到，不再扫描订单
+ * 同时维护每个商家的最近下单时间和下单间隔的均值、方差，供滞销商家检测使用
+ * 启动时和每天凌晨从数据库重建，订单创建和取消通过领域事件增量更新；
+ * 重建期间收到的事件暂存，读取完成后只把快照中没有的订单应用到新指标
+ */
+@Service
+@Slf4j
+public class ShopKpiService implements DomainEventConsumer {
+
+    /**
+     * 滚动窗口天数
+     */
+    private static final int[] WINDOWS = {7, 30, 90};
+
+    /**
+     * 按天保留的最长天数
+     */
+    private static final int MAX_DAYS = 90;
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Value("${statistics.shop.history-days:365}")
+    private int historyDays; // 统计下单间隔使用的历史天数
+
+    private Map<Integer, ShopKpi> kpis = new HashMap<>(); // 商家ID -> 指标，受this锁保护
+    private LocalDate dayStart = LocalDate.now()
+                                          .minusDays(MAX_DAYS - 1); // 按天保留的起始日期
+    private final RebuildEventBuffer buffer = new RebuildEventBuffer(); // 重建期间收到的事件，受this锁保护
+
+    /**
+     * 汇总值
+     */
+    private static class Total {
+        private int orderCount;
+        private BigDecimal sales = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+
+        private void add(int orderCount, BigDecimal sales, BigDecimal profit) {
+            this.orderCount += orderCount;
+            this.sales = this.sales.add(sales);
+            this.profit = this.profit.add(profit);
+        }
+    }
+
+    /**
+     * 商家下单活跃度
+     *
+     * @param lastOrderTime  最近下单时间，没有订单时为null
+     * @param intervalCount  统计到的下单间隔个数
+     * @param intervalMean   下单间隔均值（天）
+     * @param intervalStdDev 下单间隔标准差（天）
+     */
+    public record Activity(LocalDateTime lastOrderTime, int intervalCount, double intervalMean, double intervalStdDev) {
+    }
+
+    /**
+     * 单个商家的指标
+     */
+    private static class ShopKpi {
+        private final Total lifetime = new Total(); // 累计
+        private final TreeMap<LocalDate, Total> days = new TreeMap<>(); // 最近90天按天汇总
+        private LocalDateTime lastOrderTime; // 最近下单时间
+        private int intervalCount; // 下单间隔个数
+        private double intervalMean; // 下单间隔均值（天）
+        private double intervalM2; // 下单间隔与均值差的平方和，用于增量计算方差
+
+        /**
+         * 记录一次下单，按时间顺序调用时更新下单间隔统计
+         */
+        private void addOrderTime(LocalDateTime time) {
+            if (lastOrderTime != null) {
+                if (time.isBefore(lastOrderTime)) {
+                    return;
+                }
+                double interval = Duration.between(lastOrderTime, time)
+                                          .toMinutes() / (24.0 * 60);
+                intervalCount++;
+                double delta = interval - intervalMean;
+                intervalMean += delta / intervalCount;
+                intervalM2 += delta * (interval - intervalMean);
+            }
+            lastOrderTime = time;
+        }
+
+        private Activity activity() {
+            double stdDev = intervalCount > 1 ? Math.sqrt(intervalM2 / (intervalCount - 1)) : 0;
+            return new Activity(lastOrderTime, intervalCount, intervalMean, stdDev);
+        }
+    }
+
+    /**
+     * 从数据库重建全部商家的指标
+     * 在主库的可重复读事务中读取，全部查询和订单可见性判断基于同一快照
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${statistics.shop.rebuild-cron:0 10 0 * * *}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void rebuild() {
+        synchronized (this) {
+            buffer.start();
+        }
+        List<DomainEvent> drained = List.of(); // 已取出、尚未应用到新指标的事件
+        try {
+            LocalDate start = LocalDate.now()
+                                       .minusDays(MAX_DAYS - 1);
+            Map<Integer, ShopKpi> rebuilt = load(start);
+            while (true) {
+                synchronized (this) {
+                    drained = buffer.drain();
+                    if (drained.isEmpty()) {
+                        kpis = rebuilt;
+                        dayStart = start;
+                        buffer.stop();
+                        break;
+                    }
+                }
+                for (DomainEvent event : buffer.missed(drained, this::existingOrders)) {
+                    apply(rebuilt, start, event);
+                }
+            }
+            log.info("商家经营指标重建完成，共{}个商家有订单", rebuilt.size());
+        } catch (RuntimeException e) {
+            // 重建失败时保留原指标，暂存的事件应用到原指标
+            synchronized (this) {
+                for (DomainEvent event : drained) {
+                    apply(kpis, dayStart, event);
+                }
+                for (DomainEvent event : buffer.stop()) {
+                    apply(kpis, dayStart, event);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 从数据库读取全部商家的指标
+     *
+     * @param start 按天汇总的起始日期
+     */
+    private Map<Integer, ShopKpi> load(LocalDate start) {
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        Map<Integer, ShopKpi> rebuilt = new HashMap<>();
+
+        // 1. 累计值
+        for (Tuple row : queryFactory.select(qOrder.shop.id, qOrder.count(), qOrder.totalSalesAmount.sum(), qOrder.totalProfit.sum())
+                                     .from(qOrder)
+                                     .groupBy(qOrder.shop.id)
+                                     .fetch()) {
+            rebuilt.computeIfAbsent(row.get(qOrder.shop.id), id -> new ShopKpi()).lifetime
+                    .add(row.get(1, Number.class)
+                            .intValue(), zeroIfNull(row.get(2, BigDecimal.class)), zeroIfNull(row.get(3, BigDecimal.class)));
+        }
+
+        // 2. 统计范围之前的最近下单时间，作为下单间隔的起点
+        LocalDateTime historyStart = LocalDate.now()
+                                              .minusDays(Math.max(historyDays, MAX_DAYS) - 1)
+                                              .atStartOfDay();
+        for (Tuple row : queryFactory.select(qOrder.shop.id, qOrder.createTime.max())
+                                     .from(qOrder)
+                                     .where(qOrder.createTime.lt(historyStart))
+                                     .groupBy(qOrder.shop.id)
+                                     .fetch()) {
+            rebuilt.computeIfAbsent(row.get(qOrder.shop.id), id -> new ShopKpi()).lastOrderTime = row.get(qOrder.createTime.max());
+        }
+
+        // 3. 统计范围内的订单按时间顺序计算下单间隔，最近90天的按天汇总
+        for (Tuple row : queryFactory.select(qOrder.shop.id, qOrder.createTime, qOrder.totalSalesAmount, qOrder.totalProfit)
+                                     .from(qOrder)
+                                     .where(qOrder.createTime.goe(historyStart))
+                                     .orderBy(qOrder.createTime.asc())
+                                     .fetch()) {
+            ShopKpi kpi = rebuilt.computeIfAbsent(row.get(qOrder.shop.id), id -> new ShopKpi());
+            LocalDateTime createTime = row.get(qOrder.createTime);
+            kpi.addOrderTime(createTime);
+            if (!createTime.toLocalDate()
+                           .isBefore(start)) {
+                kpi.days.computeIfAbsent(createTime.toLocalDate(), date -> new Total())
+                        .add(1, zeroIfNull(row.get(qOrder.totalSalesAmount)), zeroIfNull(row.get(qOrder.totalProfit)));
+            }
+        }
+
+        return rebuilt;
+    }
+
+    @Override
+    public boolean accepts(Class<? extends DomainEvent> type) {
+        return type == OrderCreatedEvent.class || type == OrderCancelledEvent.class;
+    }
+
+    /**
+     * 订单创建、取消后增量更新指标，由事件总线在事务提交后投递
+     * 取消90天之前的订单只影响累计值，最近下单时间和下单间隔在下次重建时修正
+     */
+    @Override
+    public synchronized void onEvent(DomainEvent event) {
+        if (!buffer.offer(event)) {
+            apply(kpis, dayStart, event);
+        }
+    }
+
+    /**
+     * 获取所有有订单记录的商家的下单活跃度
+     *
+     * @return 商家ID -> 活跃度
+     */
+    public synchronized Map<Integer, Activity> getActivities() {
+        Map<Integer, Activity> activities = new HashMap<>();
+        kpis.forEach((shopId, kpi) -> {
+            if (kpi.lastOrderTime != null) {
+                activities.put(shopId, kpi.activity());
+            }
+        });
+        return activities;
+    }
+
+    /**
+     * 计算商家的统计结果
+     * 只读取内存中的指标，不查询订单
+     *
+     * @param shop 商家
+     * @return 统计结果
+     */
+    public synchronized ShopStatisticsDTO getStatistics(Shop shop) {
+        LocalDate today = LocalDate.now();
+        ShopKpi kpi = kpis.getOrDefault(shop.getId(), new ShopKpi());
+
+        ShopStatisticsDTO result = new ShopStatisticsDTO();
+        result.setShopId(shop.getId());
+        result.setShopName(shop.getName());
+        result.setTotalSales(kpi.lifetime.sales);
+        result.setTotalProfit(kpi.lifetime.profit);
+        result.setOrderCount(kpi.lifetime.orderCount);
+        result.setAverageBasket(divide(kpi.lifetime.sales, kpi.lifetime.orderCount));
+
+        long monthsSinceLaunch = ChronoUnit.MONTHS.between(shop.getCreateTime(), today); // 上架以来的月数
+        result.setAverageMonthlyProfit(divide(kpi.lifetime.profit, monthsSinceLaunch));
+
+        LocalDate lastOrderDate = kpi.lastOrderTime == null ? null : kpi.lastOrderTime.toLocalDate();
+        result.setLastOrderDate(lastOrderDate);
+        result.setDaysSinceLastOrder(lastOrderDate == null ? null : ChronoUnit.DAYS.between(lastOrderDate, today));
+
+        for (int days : WINDOWS) {
+            Total total = new Total();
+            for (Total day : kpi.days.tailMap(today.minusDays(days - 1), true)
+                                     .values()) {
+                total.add(day.orderCount, day.sales, day.profit);
+            }
+            ShopStatisticsDTO.WindowStatistics window = new ShopStatisticsDTO.WindowStatistics();
+            window.setDays(days);
+            window.setSales(total.sales);
+            window.setProfit(total.profit);
+            window.setOrderCount(total.orderCount);
+            window.setOrdersPerWeek(BigDecimal.valueOf(total.orderCount * 7L)
+                                              .divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP));
+            window.setAverageBasket(divide(total.sales, total.orderCount));
+            result.getWindows()
+                  .add(window);
+        }
+        return result;
+    }
+
+    private static void apply(Map<Integer, ShopKpi> target, LocalDate dayStart, DomainEvent event) {
+        switch (event) {
+            case OrderCreatedEvent created -> {
+                apply(target, dayStart, created.shopId(), created.createTime()
+                                                                 .toLocalDate(), 1,
+                      zeroIfNull(created.sales()), zeroIfNull(created.profit()));
+                target.get(created.shopId())
+                      .addOrderTime(created.createTime());
+            }
+            case OrderCancelledEvent cancelled -> apply(target, dayStart, cancelled.shopId(), cancelled.createTime()
+                                                                                                   .toLocalDate(), -1,
+                                                        zeroIfNull(cancelled.sales()).negate(),
+                                                        zeroIfNull(cancelled.profit()).negate());
+            default -> {
+            }
+        }
+    }
+
+    private static void apply(Map<Integer, ShopKpi> target, LocalDate dayStart, int shopId, LocalDate date, int orderCount,
+                              BigDecimal sales, BigDecimal profit) {
+        ShopKpi kpi = target.computeIfAbsent(shopId, id -> new ShopKpi());
+        kpi.lifetime.add(orderCount, sales, profit);
+        if (!date.isBefore(dayStart)) {
+            Total day = kpi.days.computeIfAbsent(date, key -> new Total());
+            day.add(orderCount, sales, profit);
+            if (day.orderCount <= 0) {
+                kpi.days.remove(date);
+            }
+        }
+    }
+
+    /**
+     * 给定订单中在重建快照里存在的订单
+     */
+    private List<Integer> existingOrders(Collection<Integer> orderIds) {
+        QOrder qOrder = QOrder.order; // 查询订单的QueryDSL对象
+        return queryFactory.select(qOrder.id)
+                           .from(qOrder)
+                           .where(qOrder.id.in(orderIds))
+                           .fetch();
+    }
+
+    private static BigDecimal divide(BigDecimal value, long divisor) {
+        return divisor > 0 ? value.divide(BigDecimal.valueOf(divisor), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
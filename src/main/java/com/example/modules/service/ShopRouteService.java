@@ -0,0 +1,303 @@
+package com.example.modules.service;
+
+import com.example.exception.MyException;
+import com.example.modules.dto.shop.ShopRouteDto;
+import com.example.modules.utils.GeoUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 配送路线规划服务
+ * 根据店铺坐标计算访问顺序：先预计算两两之间的球面距离矩阵，
+ * 用最近邻法构造初始路线，再用2-opt（翻转一段路线）和Or-opt（移动1~3个连续站点）反复改进，直到没有改进或超出时间预算
+ * <p>
+ * 站点较多时在多个CPU核心上并行计算距离矩阵，并从多条随机化的最近邻路线分别改进，取最短的一条
+ * 路线为开放路线（不返回起点），距离为直线距离
+ */
+@Service
+public class ShopRouteService {
+
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * 随机化最近邻时从最近的几个站点中随机选择
+     */
+    private static final int RANDOM_CANDIDATES = 3;
+
+    @Autowired
+    private ShopGeoIndex shopGeoIndex; // 店铺空间索引，提供店铺坐标
+
+    @Value("${shop.route.time-budget-ms:2000}")
+    private long timeBudgetMillis; // 单次规划的时间预算（毫秒）
+
+    @Value("${shop.route.parallel-threshold:50}")
+    private int parallelThreshold; // 并行计算的最少站点数
+
+    @Value("${shop.route.starts:0}")
+    private int starts; // 并行改进的初始路线条数，0表示CPU核心数
+
+    /**
+     * 计算访问店铺的近似最短顺序
+     *
+     * @param shopIds  店铺ID，重复的只访问一次
+     * @param startLat 出发点纬度（可选），为空时从第一个店铺出发
+     * @param startLng 出发点经度（可选）
+     * @return 配送路线
+     */
+    public ShopRouteDto plan(List<Integer> shopIds, Double startLat, Double startLng) {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + timeBudgetMillis * 1_000_000;
+
+        // 1. 取店铺坐标
+        List<ShopGeoIndex.Point> points = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer shopId : new LinkedHashSet<>(shopIds)) {
+            ShopGeoIndex.Point point = shopId == null ? null : shopGeoIndex.get(shopId);
+            if (point == null) {
+                missing.add(shopId);
+            } else {
+                points.add(point);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new MyException("店铺不存在或没有坐标: " + missing);
+        }
+        boolean depot = startLat != null && startLng != null;
+        int offset = depot ? 1 : 0; // 有出发点时节点0为出发点，店铺从1开始
+        int size = points.size() + offset;
+
+        ShopRouteDto dto = new ShopRouteDto();
+        if (points.isEmpty()) {
+            return dto;
+        }
+        double[] lats = new double[size];
+        double[] lngs = new double[size];
+        if (depot) {
+            lats[0] = startLat;
+            lngs[0] = startLng;
+        }
+        for (int i = 0; i < points.size(); i++) {
+            lats[i + offset] = points.get(i)
+                                     .lat();
+            lngs[i + offset] = points.get(i)
+                                     .lng();
+        }
+
+        // 2. 距离矩阵、构造与改进
+        boolean parallel = size >= parallelThreshold;
+        double[][] distances = distanceMatrix(lats, lngs, parallel);
+        int[] initial = nearestNeighbour(distances, null);
+        int attempts = parallel ? (starts > 0 ? starts : Runtime.getRuntime()
+                                                                 .availableProcessors()) : 1;
+        IntStream seeds = IntStream.range(0, attempts);
+        Attempt best = (parallel ? seeds.parallel() : seeds)
+                .mapToObj(seed -> improve(seed == 0 ? initial.clone()
+                                                    : nearestNeighbour(distances, new SplittableRandom(seed)),
+                                          distances, deadline))
+                .min(Comparator.comparingDouble(Attempt::length))
+                .orElseThrow();
+
+        // 3. 组装结果
+        dto.setInitialDistance(length(initial, distances));
+        dto.setTotalDistance(best.length());
+        dto.setTimedOut(best.timedOut());
+        int[] tour = best.tour();
+        for (int k = offset; k < size; k++) {
+            ShopGeoIndex.Point point = points.get(tour[k] - offset);
+            double leg = k == 0 ? 0 : distances[tour[k - 1]][tour[k]];
+            dto.getStops()
+               .add(new ShopRouteDto.Stop(k - offset + 1, point.id(), point.name(), point.location(),
+                                          point.longitude(), point.latitude(), leg));
+        }
+        dto.setElapsedMillis((System.nanoTime() - startNanos) / 1_000_000);
+        return dto;
+    }
+
+    /**
+     * 一条路线的改进结果
+     */
+    private record Attempt(int[] tour, double length, boolean timedOut) {
+    }
+
+    /**
+     * 计算两两之间的距离，按行并行
+     */
+    private double[][] distanceMatrix(double[] lats, double[] lngs, boolean parallel) {
+        int size = lats.length;
+        double[][] distances = new double[size][size];
+        IntStream rows = IntStream.range(0, size);
+        (parallel ? rows.parallel() : rows).forEach(i -> {
+            for (int j = i + 1; j < size; j++) {
+                double distance = GeoUtils.distance(lats[i], lngs[i], lats[j], lngs[j]);
+                distances[i][j] = distance;
+                distances[j][i] = distance;
+            }
+        });
+        return distances;
+    }
+
+    /**
+     * 最近邻法构造路线，从节点0出发
+     *
+     * @param random 为空时每次选择最近的站点，否则从最近的几个站点中随机选择
+     */
+    private int[] nearestNeighbour(double[][] distances, SplittableRandom random) {
+        int size = distances.length;
+        int[] tour = new int[size];
+        boolean[] visited = new boolean[size];
+        visited[0] = true;
+        int[] candidates = new int[RANDOM_CANDIDATES];
+        double[] candidateDistances = new double[RANDOM_CANDIDATES];
+        int width = random == null ? 1 : RANDOM_CANDIDATES;
+        for (int k = 1; k < size; k++) {
+            int current = tour[k - 1];
+            int count = 0;
+            for (int next = 0; next < size; next++) {
+                if (visited[next]) {
+                    continue;
+                }
+                // 插入排序维护最近的width个站点
+                double distance = distances[current][next];
+                int position = Math.min(count, width - 1);
+                if (count == width && distance >= candidateDistances[position]) {
+                    continue;
+                }
+                while (position > 0 && candidateDistances[position - 1] > distance) {
+                    candidates[position] = candidates[position - 1];
+                    candidateDistances[position] = candidateDistances[position - 1];
+                    position--;
+                }
+                candidates[position] = next;
+                candidateDistances[position] = distance;
+                count = Math.min(count + 1, width);
+            }
+            int chosen = candidates[random == null ? 0 : random.nextInt(count)];
+            tour[k] = chosen;
+            visited[chosen] = true;
+        }
+        return tour;
+    }
+
+    /**
+     * 交替使用2-opt和Or-opt改进路线，直到没有改进或超出时间预算
+     */
+    private Attempt improve(int[] tour, double[][] distances, long deadline) {
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(tour, distances, deadline);
+            improved |= orOpt(tour, distances, deadline);
+        }
+        return new Attempt(tour, length(tour, distances), improved);
+    }
+
+    /**
+     * 2-opt：删除两条边并翻转其间的路线，起点固定，终点开放
+     */
+    private boolean twoOpt(int[] tour, double[][] d, long deadline) {
+        int size = tour.length;
+        boolean improved = false;
+        for (int i = 0; i < size - 2; i++) {
+            int a = tour[i];
+            for (int j = i + 2; j < size; j++) {
+                int b = tour[i + 1];
+                int c = tour[j];
+                double delta = j == size - 1 ? d[a][c] - d[a][b]
+                        : d[a][c] + d[b][tour[j + 1]] - d[a][b] - d[c][tour[j + 1]];
+                if (delta < -EPSILON) {
+                    reverse(tour, i + 1, j);
+                    improved = true;
+                }
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Or-opt：把1~3个连续站点（可翻转）移动到路线的其他位置
+     */
+    private boolean orOpt(int[] tour, double[][] d, long deadline) {
+        int size = tour.length;
+        boolean improved = false;
+        for (int length = 1; length <= 3; length++) {
+            for (int i = 1; i + length <= size; i++) {
+                int previous = tour[i - 1];
+                int first = tour[i];
+                int last = tour[i + length - 1];
+                boolean hasNext = i + length < size;
+                double removeGain = d[previous][first]
+                        + (hasNext ? d[last][tour[i + length]] - d[previous][tour[i + length]] : 0);
+                for (int j = 0; j < size; j++) {
+                    if (j >= i - 1 && j <= i + length - 1) {
+                        continue;
+                    }
+                    int a = tour[j];
+                    boolean hasB = j + 1 < size;
+                    double base = hasB ? d[a][tour[j + 1]] : 0;
+                    double add = d[a][first] + (hasB ? d[last][tour[j + 1]] : 0) - base;
+                    double addReversed = d[a][last] + (hasB ? d[first][tour[j + 1]] : 0) - base;
+                    if (Math.min(add, addReversed) - removeGain < -EPSILON) {
+                        move(tour, i, length, j, addReversed < add);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * 把从from开始的length个站点移动到位置after之后
+     */
+    private void move(int[] tour, int from, int length, int after, boolean reversed) {
+        int[] segment = Arrays.copyOfRange(tour, from, from + length);
+        if (reversed) {
+            reverse(segment, 0, length - 1);
+        }
+        int[] result = new int[tour.length];
+        int k = 0;
+        for (int x = 0; x < tour.length; x++) {
+            if (x >= from && x < from + length) {
+                continue;
+            }
+            result[k++] = tour[x];
+            if (x == after) {
+                for (int node : segment) {
+                    result[k++] = node;
+                }
+            }
+        }
+        System.arraycopy(result, 0, tour, 0, tour.length);
+    }
+
+    private void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int node = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = node;
+        }
+    }
+
+    private double length(int[] tour, double[][] distances) {
+        double length = 0;
+        for (int k = 1; k < tour.length; k++) {
+            length += distances[tour[k - 1]][tour[k]];
+        }
+        return length;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.shop.ShopSimpleDto;
+import com.example.modules.entity.QShop;
+import com.example.modules.utils.ChinesePinyinFirstLetter;
+import com.example.modules.utils.ReloadableSearchIndex;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 店铺搜索索引
+ * 在内存中按店铺名称、地址、名称全拼和拼音首字母建立索引，
+ * 输入联想式的店铺搜索不再执行 name LIKE '%x%' OR location LIKE '%x%' 全表扫描
+ * 启动时和每天定时全量构建（同步价格规则名称等关联数据），店铺新建和修改后增量更新
+ */
+@Service
+@Slf4j
+public class ShopSearchIndex {
+
+    /**
+     * 检索字段权重：名称、拼音首字母、全拼、地址
+     */
+    private static final double[] WEIGHTS = {1.0, 0.9, 0.8, 0.6};
+
+    private final QShop shop = QShop.shop; // 查询商家的QueryDSL对象
+
+    // 店铺简化信息投影，与 ShopService 的列表接口一致
+    private final Expression<ShopSimpleDto> simpleProjection = Projections.constructor(
+            ShopSimpleDto.class,
+            shop.id, shop.name, shop.location, shop.pinyin,
+            Projections.constructor(ShopSimpleDto.PriceRuleDto.class,
+                                    shop.priceRule.id, shop.priceRule.name, shop.priceRule.isDie, shop.priceRule.color));
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Value("${shop.search.fuzzy-threshold:0.6}")
+    private double fuzzyThreshold; // 模糊匹配要求的共有两字组比例
+
+    private final ReloadableSearchIndex<ShopSimpleDto> index = new ReloadableSearchIndex<>(
+            WEIGHTS, 0.6, this::loadAll, this::loadByIds, ShopSimpleDto::getId, this::fields);
+
+    /**
+     * 从数据库全量构建索引
+     * 不在事务中执行：构建期间修改的店铺在替换后需要从主库重新读取最新数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${shop.search.rebuild-cron:0 20 0 * * *}")
+    public void rebuild() {
+        log.info("店铺搜索索引构建完成，共{}个店铺", index.rebuild(fuzzyThreshold));
+    }
+
+    /**
+     * 店铺新建或修改后更新索引
+     *
+     * @param shopId 店铺ID
+     */
+    public void onShopChanged(int shopId) {
+        onShopsChanged(List.of(shopId));
+    }
+
+    /**
+     * 店铺批量新建或修改后更新索引
+     * 在当前事务提交后一次性重新读取这些店铺；已删除的店铺从索引中移除
+     *
+     * @param shopIds 店铺ID
+     */
+    public void onShopsChanged(Collection<Integer> shopIds) {
+        index.onChanged(shopIds);
+    }
+
+    /**
+     * 按名称、地址、全拼或拼音首字母搜索店铺
+     *
+     * @param keyword 关键字
+     * @param limit   最多返回的店铺数量
+     * @return 按匹配程度排序的店铺
+     */
+    public List<ShopSimpleDto> search(String keyword, int limit) {
+        return index.current()
+                    .search(keyword, limit);
+    }
+
+    private List<ShopSimpleDto> loadAll() {
+        return queryFactory.select(simpleProjection)
+                           .from(shop)
+                           .where(shop.isDel.isFalse())
+                           .fetch();
+    }
+
+    private List<ShopSimpleDto> loadByIds(Collection<Integer> ids) {
+        return queryFactory.select(simpleProjection)
+                           .from(shop)
+                           .where(shop.id.in(ids), shop.isDel.isFalse())
+                           .fetch();
+    }
+
+    private String[] fields(ShopSimpleDto dto) {
+        return new String[]{dto.getName(),
+                            ChinesePinyinFirstLetter.getInitials(dto.getName()),
+                            ChinesePinyinFirstLetter.getPinyin(dto.getName()),
+                            dto.getLocation()};
+    }
+}
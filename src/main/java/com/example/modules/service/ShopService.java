@@ -6,23 +6,33 @@ import com.example.modules.BaseRepository;
 import com.example.modules.dto.shop.ShopArrearsDto;
 import com.example.modules.dto.shop.ShopDto;
 import com.example.modules.dto.shop.ShopRequestDto;
+import com.example.modules.dto.shop.ShopSimpleDto;
 import com.example.modules.entity.*;
 import com.example.modules.mapper.ShopMapper;
 import com.example.modules.query.ShopQuery;
+import com.example.modules.repository.PriceRuleRepository;
 import com.example.modules.repository.ShopRepository;
 import com.example.modules.utils.ChinesePinyinFirstLetter;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.LockModeType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -42,20 +52,89 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
     @Autowired
     private JPAQueryFactory queryFactory; // JPA查询工厂
 
+    @Autowired
+    private ShopGeoIndex shopGeoIndex; // 店铺空间索引
+
+    @Autowired
+    private ShopSearchIndex shopSearchIndex; // 店铺搜索索引
+
+    @Autowired
+    private ReceivableService receivableService; // 应收账款服务
+
+    @Autowired
+    private PriceRuleRepository priceRuleRepository; // 价格规则仓库
+
     private final QShop shop = QShop.shop; // 查询商家的QueryDSL对象
 
     private final QPriceRule priceRule = QPriceRule.priceRule; // 查询价格规则的QueryDSL对象
     private final QPriceRuleDetail priceRuleDetail = QPriceRuleDetail.priceRuleDetail; // 查询价格规则详情的QueryDSL对象
     private final QProduct product = QProduct.product;
 
+    // 店铺简化信息投影，价格规则字段通过路径引用，只查询需要的列
+    private final Expression<ShopSimpleDto> simpleProjection = Projections.constructor(
+            ShopSimpleDto.class,
+            shop.id, shop.name, shop.location, shop.pinyin,
+            Projections.constructor(ShopSimpleDto.PriceRuleDto.class,
+                                    shop.priceRule.id, shop.priceRule.name, shop.priceRule.isDie, shop.priceRule.color));
+
+    // 店铺位置信息投影
+    private final Expression<ShopLocationDto> locationProjection = Projections.constructor(
+            ShopLocationDto.class,
+            shop.id, shop.name, shop.location, shop.longitude, shop.latitude);
+
+    /**
+     * 批量修改商家
+     * 语句数固定，与商家数量无关：一次查询按ID顺序锁定全部商家，一次查询加载涉及的价格规则，
+     * 修改在事务提交时批量写回；按ID顺序加锁，并发的批量修改不会互相死锁
+     */
+    @Transactional
     public void update(List<ShopRequestDto> shops) {
-        // 更新商家信息
+        if (shops.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = shops.stream()
+                                 .map(ShopRequestDto::getId)
+                                 .distinct()
+                                 .sorted()
+                                 .toList();
+        // 1. 锁定商家，欠款调整基于锁定后读到的欠款，同一商家的记账串行执行
+        Map<Integer, Shop> locked = queryFactory.selectFrom(shop)
+                                                .where(shop.id.in(ids))
+                                                .orderBy(shop.id.asc())
+                                                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                                                .fetch()
+                                                .stream()
+                                                .collect(Collectors.toMap(Shop::getId, Function.identity()));
+        List<Integer> missing = ids.stream()
+                                   .filter(id -> !locked.containsKey(id))
+                                   .toList();
+        if (!missing.isEmpty()) {
+            throw new MyException("商家不存在: " + missing);
+        }
+
+        // 2. 价格规则一次加载进持久化上下文，partialUpdate按ID取规则时不再逐条查询
+        Set<Integer> priceRuleIds = shops.stream()
+                                         .map(ShopRequestDto::getPriceRuleId)
+                                         .filter(Objects::nonNull)
+                                         .collect(Collectors.toSet());
+        if (!priceRuleIds.isEmpty() && priceRuleRepository.findAllById(priceRuleIds)
+                                                          .size() != priceRuleIds.size()) {
+            throw new MyException("未找到priceRule");
+        }
+
+        // 3. 欠款不直接覆盖，差额记为应收账款调整流水
+        List<Shop> updated = new ArrayList<>(shops.size());
         for (ShopRequestDto shopRequestDto : shops) {
-            Shop shop = shopRepository.findById(shopRequestDto.getId())
-                                      .orElseThrow(() -> new MyException("商家未找到"));
-            shopMapper.partialUpdate(shopRequestDto, shop);
-            shopRepository.save(shop);
+            Shop target = locked.get(shopRequestDto.getId());
+            if (shopRequestDto.getArrears() != null) {
+                receivableService.adjustTo(target, shopRequestDto.getArrears(), "修改商家欠款");
+                shopRequestDto.setArrears(null);
+            }
+            shopMapper.partialUpdate(shopRequestDto, target);
+            updated.add(target);
         }
+        updated.forEach(shopGeoIndex::onShopChanged);
+        shopSearchIndex.onShopsChanged(ids);
     }
 
     /**
@@ -75,6 +154,27 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
     }
 
 
+    /**
+     * 查询店铺简化信息列表
+     * 直接投影为DTO，不加载店铺和价格规则实体
+     *
+     * @param query 查询条件，不需要指定includes
+     * @return 店铺简化信息列表
+     */
+    public List<ShopSimpleDto> findSimpleList(ShopQuery query) {
+        return findList(query, simpleProjection);
+    }
+
+    /**
+     * 查询店铺位置信息列表
+     *
+     * @param query 查询条件，不需要指定includes
+     * @return 店铺位置信息列表
+     */
+    public List<ShopLocationDto> findLocationList(ShopQuery query) {
+        return findList(query, locationProjection);
+    }
+
     /**
      * 按shop的     private char pinyin 字段分组，;
      */
@@ -123,6 +223,9 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
         if (query.getId() != null) {
             where.and(shop.id.eq(query.getId()));
         }
+        if (query.getIds() != null) {
+            where.and(shop.id.in(query.getIds()));
+        }
 
         // 按名称或地址模糊查询
         if (query.getName() != null) {
@@ -176,6 +279,8 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
         shop.setDel(false);
         Shop shopEntity = shopMapper.toEntity(shop);
         shopRepository.save(shopEntity);
+        shopGeoIndex.onShopChanged(shopEntity);
+        shopSearchIndex.onShopChanged(shopEntity.getId());
 
     }
 }
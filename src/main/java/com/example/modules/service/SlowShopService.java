@@ -0,0 +1,99 @@
+package com.example.modules.service;
+
+import com.example.modules.entity.QShop;
+import com.example.modules.utils.JdbcBatch;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 滞销商家检测服务
+ * 根据 {@link ShopKpiService} 在内存中维护的最近下单时间和下单间隔统计判断商家是否滞销，
+ * 不再逐个商家查询订单表；状态有变化的商家用一次JDBC批量更新写回shop.slow
+ * <p>
+ * 判定规则：距最近下单的天数超过该商家自身的"平均间隔 + N倍标准差"（且不少于最小天数）即为滞销；
+ * 下单间隔样本不足时使用默认天数；从未下单的商家在开业超过默认天数后视为滞销
+ */
+@Service
+@Slf4j
+public class SlowShopService {
+
+    @Autowired
+    private ShopKpiService shopKpiService; // 商家经营指标
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // JDBC模板，用于批量更新
+
+    @Value("${statistics.shop.slow.min-intervals:3}")
+    private int minIntervals; // 使用自身下单规律所需的最少间隔个数
+
+    @Value("${statistics.shop.slow.sigma:2}")
+    private double sigma; // 标准差倍数
+
+    @Value("${statistics.shop.slow.min-gap-days:7}")
+    private double minGapDays; // 判定滞销的最小间隔天数
+
+    @Value("${statistics.shop.slow.default-gap-days:30}")
+    private double defaultGapDays; // 样本不足时判定滞销的间隔天数
+
+    /**
+     * 检测滞销商家并更新标记
+     *
+     * @return 标记发生变化的商家数量
+     */
+    @Scheduled(cron = "${statistics.shop.slow.cron:0 30 1 * * *}")
+    @Transactional
+    public int detect() {
+        QShop qShop = QShop.shop; // 查询商店的QueryDSL对象
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, ShopKpiService.Activity> activities = shopKpiService.getActivities();
+
+        List<Object[]> changes = new ArrayList<>(); // [slow, shopId]
+        for (Tuple row : queryFactory.select(qShop.id, qShop.createTime, qShop.slow)
+                                     .from(qShop)
+                                     .where(qShop.isDel.isFalse())
+                                     .fetch()) {
+            Integer shopId = row.get(qShop.id);
+            boolean slow = isSlow(activities.get(shopId), row.get(qShop.createTime), now);
+            if (slow != Boolean.TRUE.equals(row.get(qShop.slow))) {
+                changes.add(new Object[]{slow, shopId});
+            }
+        }
+
+        JdbcBatch.update(jdbcTemplate, "UPDATE shop SET slow = ? WHERE id = ?", changes, (ps, change) -> {
+            ps.setBoolean(1, (Boolean) change[0]);
+            ps.setInt(2, (Integer) change[1]);
+        });
+        log.info("滞销商家检测完成，{}个商家标记发生变化", changes.size());
+        return changes.size();
+    }
+
+    private boolean isSlow(ShopKpiService.Activity activity, LocalDate createTime, LocalDateTime now) {
+        if (activity == null) {
+            return createTime != null && ChronoUnit.DAYS.between(createTime, now.toLocalDate()) > defaultGapDays;
+        }
+        double gapDays = Duration.between(activity.lastOrderTime(), now)
+                                 .toMinutes() / (24.0 * 60);
+        double threshold = activity.intervalCount() >= minIntervals
+                ? Math.max(minGapDays, activity.intervalMean() + sigma * activity.intervalStdDev())
+                : defaultGapDays;
+        return gapDays > threshold;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.modules.service;
 
+import com.example.modules.BaseRepository;
 import com.example.modules.dto.statistics.request.MovingAverageLineRequest;
+import com.example.modules.dto.statistics.response.ColumnarSeriesDTO;
 import com.example.modules.dto.statistics.response.MovingAverageLineDTO;
 import com.example.modules.dto.statistics.response.ProductSalesInfoDTO;
 import com.example.modules.dto.statistics.response.SalesStatisticsDTO;
@@ -8,31 +10,40 @@ import com.example.modules.dto.statistics.response.ShopStatisticsDTO;
 import com.example.modules.entity.Order;
 import com.example.modules.entity.OrderDetail;
 import com.example.modules.entity.Product;
+import com.example.modules.entity.QOrder;
+import com.example.modules.entity.QOrderDetail;
+import com.example.modules.entity.QProduct;
 import com.example.modules.entity.Shop;
 import com.example.modules.query.OrderQuery;
 import com.example.modules.query.ProductQuery;
 import com.example.modules.query.ShopQuery;
 import com.example.modules.utils.DataExtractor;
 import com.example.modules.utils.MovingAverageCalculator;
+import com.example.modules.utils.QuantityExtractor;
+import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 统计服务类
  * 提供各类统计数据的计算服务，包括商家统计、日期范围统计等
+ * 全部为只读查询，在只读事务中执行（路由到只读副本）
  */
 @Service
 @Slf4j
+@Transactional(readOnly = true)
 public class StatisticsService {
 
     @Autowired
@@ -44,8 +55,18 @@ public class StatisticsService {
     @Autowired
     private ProductService productService; // 商品模块服务
 
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Autowired
+    private ShopKpiService shopKpiService; // 商家经营指标
+
+    @Autowired
+    private DailySalesView dailySalesView; // 每日销售统计
+
     /**
      * 计算所有商家的统计数据
+     * 指标由 {@link ShopKpiService} 在内存中维护，只查询商家列表，不扫描订单
      *
      * @return List<ShopStatisticsDTO> 包含所有商家统计结果的列表
      */
@@ -56,28 +77,25 @@ public class StatisticsService {
 
         List<Shop> shops = shopService.findList(shopQuery);
 
-        OrderQuery orderQuery = OrderQuery.builder()
-                                          .includes(OrderQuery.Include.WITH_SHOP)
-                                          .build();
-
-        // 获取所有订单
-        List<Order> orders = orderService.findList(orderQuery);
-
-        // 对每个商家计算统计结果
         return shops.stream()
-                    .map(shop -> calculateStatisticsForShop(shop, orders))
+                    .map(shopKpiService::getStatistics)
                     .collect(Collectors.toList());
     }
 
     /**
      * 日期范围统计方法
      * 计算指定日期范围内的销售统计数据
+     * 范围在 {@link DailySalesView} 的窗口内时直接合并每日汇总，否则查询订单计算
      *
      * @param startDate 开始日期
      * @param endDate   结束日期
      * @return 销售统计数据
      */
     public SalesStatisticsDTO calculateDateRangeStatistics(LocalDate startDate, LocalDate endDate) {
+        Optional<SalesStatisticsDTO> cached = dailySalesView.getTotal(startDate, endDate);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         OrderQuery build = OrderQuery.builder()
                                      .startTime(startDate)
                                      .endTime(endDate)
@@ -89,12 +107,17 @@ public class StatisticsService {
 
     /**
      * 计算每日销售统计数据
+     * 范围在 {@link DailySalesView} 的窗口内时直接读取每日汇总，否则查询订单计算
      *
      * @param startDate 开始日期
      * @param endDate   结束日期
      * @return 每日销售统计数据
      */
     public Map<LocalDate, SalesStatisticsDTO> calculateDailyStatistics(LocalDate startDate, LocalDate endDate) {
+        Optional<Map<LocalDate, SalesStatisticsDTO>> cached = dailySalesView.getDaily(startDate, endDate);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         OrderQuery orderQuery = OrderQuery.builder()
                                           .startTime(startDate)
                                           .endTime(endDate)
@@ -120,6 +143,138 @@ public class StatisticsService {
         return dailyStatistics;
     }
 
+    /**
+     * 流式计算每日销售统计数据
+     * 按下单时间顺序从数据库游标读取订单明细，每聚合完一天即产出该天的统计结果，内存中只保留当天的数据。
+     * 没有订单的日期同样产出空统计，结果与 {@link #calculateDailyStatistics} 一致。
+     * 调用方需在事务内消费并关闭返回的Stream
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 按日期升序排列的每日销售统计
+     */
+    public Stream<Map.Entry<LocalDate, SalesStatisticsDTO>> streamDailyStatistics(LocalDate startDate, LocalDate endDate) {
+        QOrder qOrder = QOrder.order;
+        QOrderDetail qOrderDetail = QOrderDetail.orderDetail;
+        QProduct qProduct = QProduct.product;
+
+        // 只查询统计需要的列，避免实体水合
+        Stream<SalesLine> lines = queryFactory
+                .select(qOrder.id, qOrder.createTime, qOrder.totalSalesAmount, qOrder.totalProfit,
+                        qProduct.id, qProduct.name,
+                        qOrderDetail.quantity, qOrderDetail.totalSalesAmount, qOrderDetail.totalProfit)
+                .from(qOrder)
+                .leftJoin(qOrder.orderDetails, qOrderDetail)
+                .leftJoin(qOrderDetail.product, qProduct)
+                .where(qOrder.createTime.between(startDate.atStartOfDay(), endDate.atTime(23, 59, 59)))
+                .orderBy(qOrder.createTime.asc(), qOrder.id.asc())
+                .setHint(HibernateHints.HINT_FETCH_SIZE, BaseRepository.STREAM_FETCH_SIZE)
+                .stream()
+                .map(tuple -> new SalesLine(
+                        tuple.get(qOrder.id),
+                        tuple.get(qOrder.createTime).toLocalDate(),
+                        tuple.get(qOrder.totalSalesAmount),
+                        tuple.get(qOrder.totalProfit),
+                        tuple.get(qProduct.id),
+                        tuple.get(qProduct.name),
+                        tuple.get(qOrderDetail.quantity),
+                        tuple.get(qOrderDetail.totalSalesAmount),
+                        tuple.get(qOrderDetail.totalProfit)));
+
+        DailyStatisticsIterator iterator = new DailyStatisticsIterator(lines.iterator(), startDate, endDate);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                            .onClose(lines::close);
+    }
+
+    /**
+     * 订单明细统计行
+     * 每行对应一个订单明细，同时携带所属订单的汇总金额
+     */
+    private record SalesLine(Integer orderId, LocalDate date, BigDecimal orderSales, BigDecimal orderProfit,
+                             Integer productId, String productName, Integer quantity,
+                             BigDecimal sales, BigDecimal profit) {
+    }
+
+    /**
+     * 按日期逐天聚合的迭代器
+     * 依赖输入按下单时间升序排列，每次next()只消费属于当天的行
+     */
+    private static final class DailyStatisticsIterator implements Iterator<Map.Entry<LocalDate, SalesStatisticsDTO>> {
+        private final Iterator<SalesLine> lines;
+        private final LocalDate endDate;
+        private LocalDate currentDate;
+        private SalesLine pending; // 已读取但尚未计入统计的行
+
+        DailyStatisticsIterator(Iterator<SalesLine> lines, LocalDate startDate, LocalDate endDate) {
+            this.lines = lines;
+            this.currentDate = startDate;
+            this.endDate = endDate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !currentDate.isAfter(endDate);
+        }
+
+        @Override
+        public Map.Entry<LocalDate, SalesStatisticsDTO> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LocalDate date = currentDate;
+            currentDate = currentDate.plusDays(1);
+
+            int orderCount = 0;
+            Integer lastOrderId = null;
+            BigDecimal totalSales = BigDecimal.ZERO;
+            BigDecimal totalProfit = BigDecimal.ZERO;
+            Map<Integer, ProductSalesInfoDTO> productMap = new LinkedHashMap<>();
+
+            if (pending == null && lines.hasNext()) {
+                pending = lines.next();
+            }
+            while (pending != null && !pending.date().isAfter(date)) {
+                // 订单汇总金额只在遇到新订单时累加一次
+                if (!pending.orderId().equals(lastOrderId)) {
+                    lastOrderId = pending.orderId();
+                    orderCount++;
+                    totalSales = totalSales.add(pending.orderSales() != null ? pending.orderSales() : BigDecimal.ZERO);
+                    totalProfit = totalProfit.add(pending.orderProfit() != null ? pending.orderProfit() : BigDecimal.ZERO);
+                }
+                if (pending.productId() != null) {
+                    ProductSalesInfoDTO dto = productMap.get(pending.productId());
+                    if (dto == null) {
+                        dto = new ProductSalesInfoDTO();
+                        dto.setProductId(pending.productId());
+                        dto.setProductName(pending.productName());
+                        dto.setQuantity(pending.quantity());
+                        dto.setTotalSales(pending.sales());
+                        dto.setTotalProfit(pending.profit());
+                        productMap.put(pending.productId(), dto);
+                    } else {
+                        dto.setQuantity(dto.getQuantity() + pending.quantity());
+                        dto.setTotalSales(dto.getTotalSales()
+                                             .add(pending.sales()));
+                        dto.setTotalProfit(dto.getTotalProfit()
+                                              .add(pending.profit()));
+                    }
+                }
+                pending = lines.hasNext() ? lines.next() : null;
+            }
+
+            SalesStatisticsDTO result = new SalesStatisticsDTO();
+            result.setOrderCount(orderCount);
+            result.setTotalSales(totalSales);
+            result.setTotalProfit(totalProfit);
+            result.setTotalCost(totalSales.subtract(totalProfit));
+            result.setProductSalesInfoDTOS(productMap.values()
+                                                     .stream()
+                                                     .filter(dto -> dto.getQuantity() > 0)
+                                                     .collect(Collectors.toList()));
+            return Map.entry(date, result);
+        }
+    }
+
     /**
      * 核心统计计算逻辑
      * 用于统计给定的订单列表中的销售总额、利润总额、销售数量 的总和信息和各商品的销售统计信息
@@ -169,45 +324,6 @@ public class StatisticsService {
     }
 
 
-    /**
-     * 计算单个商家的统计信息
-     *
-     * @param shop   商家信息
-     * @param orders 所有订单列表
-     * @return ShopStatisticsDTO 单个商家的统计结果
-     */
-    private ShopStatisticsDTO calculateStatisticsForShop(Shop shop, List<Order> orders) {
-        // 过滤出该商家的订单
-        List<Order> shopOrders = orders.stream()
-                                       .filter(order -> order.getShop()
-                                                             .getId() == shop.getId())
-                                       .toList();
-        // 计算总销售额和总利润
-        BigDecimal totalSales = shopOrders.stream()
-                                          .map(Order::getTotalSalesAmount)
-                                          .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalProfit = shopOrders.stream()
-                                           .map(Order::getTotalProfit)
-                                           .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 计算平均月利润
-        LocalDate now = LocalDate.now(); // 当前日期
-        long monthsSinceLaunch = ChronoUnit.MONTHS.between(shop.getCreateTime(), now); // 上架以来的月数
-
-        BigDecimal averageMonthlyProfit = monthsSinceLaunch > 0 ? totalProfit.divide(BigDecimal.valueOf(monthsSinceLaunch), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-
-        // 封装统计结果
-        ShopStatisticsDTO result = new ShopStatisticsDTO();
-        result.setShopId(shop.getId());
-        result.setShopName(shop.getName());
-        result.setTotalSales(totalSales);
-        result.setTotalProfit(totalProfit);
-        result.setAverageMonthlyProfit(averageMonthlyProfit);
-
-        return result;
-    }
-
     /**
      * 计算给定orders中各商品的销售数量、销售额和利润统计总和
      *
@@ -503,5 +619,21 @@ public class StatisticsService {
 
         return result;
     }
-}
 
+    /**
+     * 获取指定商品ID从最早销售时间到今天的每天销售数量（列式）
+     * 与 {@link #getDailySalesByProductId} 数据相同，不为每天创建Map
+     *
+     * @param productId 商品ID
+     * @return 列式时间序列，序列名为 y
+     */
+    public ColumnarSeriesDTO getDailySalesSeries(int productId) {
+        LocalDate startDate = productService.getEarliestSaleDateByProductId(productId);
+        LocalDate endDate = LocalDate.now();
+
+        Map<LocalDate, SalesStatisticsDTO> dailyStatistics = calculateDailyStatistics(startDate, endDate);
+        double[] quantities = getDailySalesForProduct(dailyStatistics, productId, new QuantityExtractor());
+
+        return ColumnarSeriesDTO.of(startDate, quantities.length, List.of(ColumnarSeriesDTO.column("y", quantities)));
+    }
+}
@@ -1,30 +1,165 @@
 package com.example.modules.utils;
 
-import com.example.modules.repository.BatchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 批次号生成器
+ * 批次号格式：PRD + yyyyMMdd + 至少3位序号
+ * 序号从batch_number_sequence表按号段整段预留，号段内的序号在内存中用AtomicInteger分配，
+ * 并发采购不会拿到相同序号，也不再统计batch表；应用重启后未用完的号段会留下空号
+ */
 @Component
 public class BatchNumberGenerator {
-    private final BatchRepository batchRepository;
     private static final String PREFIX = "PRD";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
 
-    public BatchNumberGenerator(BatchRepository batchRepository) {
-        this.batchRepository = batchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${batch.number.block-size:20}")
+    private int blockSize; // 每次预留的序号数量
+
+    private final Map<LocalDate, DaySequence> sequences = new ConcurrentHashMap<>(); // 日期 -> 当天序号
+
+    private Clock clock = Clock.systemDefaultZone(); // 取当天日期的时钟
+
+    public BatchNumberGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        // 号段预留在独立事务中提交，外层事务回滚也不会重复发号，且不长时间持有行锁
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     public String generateBatchNumber() {
-        String dateStr = LocalDate.now().format(DATE_FORMATTER);
-        String prefix = PREFIX + dateStr;
-        
-        // 获取当天的序号
-        int count = batchRepository.countByBatchNumberPrefix(prefix);
+        return generateBatchNumbers(1).getFirst();
+    }
+
+    /**
+     * 一次生成多个批次号
+     *
+     * @param count 数量
+     * @return 当天的批次号列表，序号递增
+     */
+    public List<String> generateBatchNumbers(int count) {
+        LocalDate today = LocalDate.now(clock);
+        String prefix = PREFIX + today.format(DATE_FORMATTER);
+        DaySequence sequence = sequences.get(today);
+        if (sequence == null) {
+            // 跨天后丢弃之前日期的序号；不能在computeIfAbsent的映射函数中修改同一个map
+            sequences.keySet()
+                     .removeIf(day -> day.isBefore(today));
+            sequence = sequences.computeIfAbsent(today, date -> new DaySequence(date, prefix));
+        }
+
+        List<String> numbers = new ArrayList<>(count);
+        if (count > blockSize) {
+            // 超过一个号段的批量请求直接预留一段连续序号
+            int start = reserve(today, prefix, count);
+            for (int i = 0; i < count; i++) {
+                numbers.add(format(prefix, start + i));
+            }
+            return numbers;
+        }
+        for (int i = 0; i < count; i++) {
+            numbers.add(format(prefix, sequence.next()));
+        }
+        return numbers;
+    }
+
+    private static String format(String prefix, int sequence) {
         // 生成3位序号，不足补0
-        String sequence = String.format("%03d", count + 1);
-        
-        return prefix + sequence;
+        return prefix + String.format("%03d", sequence);
+    }
+
+    /**
+     * 从序号表预留一个号段
+     * 当天第一次预留时，以batch表中当天已有的最大序号初始化（只按批次号前缀走唯一索引，每天一次）；
+     * 之后只锁定序号表的一行，不再扫描batch表
+     *
+     * @param size 预留数量
+     * @return 号段的起始序号
+     */
+    private int reserve(LocalDate date, String prefix, int size) {
+        Integer start = transactionTemplate.execute(status -> {
+            Integer next = lockNextValue(date);
+            if (next == null) {
+                jdbcTemplate.update("""
+                                            INSERT IGNORE INTO batch_number_sequence (seq_date, next_value)
+                                            SELECT ?, COALESCE(MAX(CAST(SUBSTRING(batch_number, ?) AS UNSIGNED)), 0) + 1
+                                            FROM batch
+                                            WHERE batch_number LIKE ?
+                                            """, date, prefix.length() + 1, prefix + "%");
+                next = lockNextValue(date);
+            }
+            jdbcTemplate.update("UPDATE batch_number_sequence SET next_value = ? WHERE seq_date = ?", next + size, date);
+            return next;
+        });
+        return start;
+    }
+
+    /**
+     * 锁定当天的序号行
+     *
+     * @return 下一个未分配的序号，当天尚未初始化时为null
+     */
+    private Integer lockNextValue(LocalDate date) {
+        List<Integer> values = jdbcTemplate.queryForList(
+                "SELECT next_value FROM batch_number_sequence WHERE seq_date = ? FOR UPDATE", Integer.class, date);
+        return values.isEmpty() ? null : values.getFirst();
+    }
+
+    /**
+     * 已预留的号段
+     *
+     * @param next 下一个可用序号
+     * @param end  号段上界（不含）
+     */
+    private record Block(AtomicInteger next, int end) {
+    }
+
+    /**
+     * 某一天的序号分配器
+     */
+    private final class DaySequence {
+        private final LocalDate date;
+        private final String prefix;
+        private volatile Block block = new Block(new AtomicInteger(), 0); // 初始为空号段，首次分配时预留
+
+        private DaySequence(LocalDate date, String prefix) {
+            this.date = date;
+            this.prefix = prefix;
+        }
+
+        private int next() {
+            while (true) {
+                Block current = block;
+                int value = current.next()
+                                   .getAndIncrement();
+                if (value < current.end()) {
+                    return value;
+                }
+                // 号段用完，由一个线程预留新号段，其余线程等待后重试
+                synchronized (this) {
+                    if (block == current) {
+                        int start = reserve(date, prefix, blockSize);
+                        block = new Block(new AtomicInteger(start), start + blockSize);
+                    }
+                }
+            }
+        }
     }
-} 
\ No newline at end of file
+}
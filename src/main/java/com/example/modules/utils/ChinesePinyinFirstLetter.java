@@ -4,32 +4,73 @@ import net.sourceforge.pinyin4j.PinyinHelper;
 import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
 import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
 import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
 import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+import java.util.Map;
 
+
+/**
+ * 汉字拼音工具
+ * 首次使用时用pinyin4j把CJK统一汉字（一-龥）的拼音预先计算成按码位下标的查找表，
+ * 之后的首字母、全拼转换只查表，不再调用pinyin4j；多音字取第一个读音
+ */
 public class ChinesePinyinFirstLetter {
-    public static char getFirstLetterOfFirstCharacter(String chineseString) {
-        if (chineseString == null || chineseString.isEmpty()) {
-            return ' '; // 空或 null 返回空格
-        }
 
-        char firstChar = chineseString.charAt(0);
+    private static final char FIRST_HAN = '一';
+    private static final char LAST_HAN = '龥';
 
-        // 检查是否是中文字符
-        if (Character.toString(firstChar).matches("[\\u4E00-\\u9FA5]")) {
+    /**
+     * 查找表，类加载时构建一次
+     */
+    private static final class Table {
+        /**
+         * 码位 - FIRST_HAN -> 拼音首字母（小写），没有拼音为0
+         */
+        static final byte[] INITIALS = new byte[LAST_HAN - FIRST_HAN + 1];
+
+        /**
+         * 码位 - FIRST_HAN -> 全拼（小写、不带声调），没有拼音为null；相同音节共用一个字符串
+         */
+        static final String[] SYLLABLES = new String[LAST_HAN - FIRST_HAN + 1];
+
+        static {
             HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
             format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
             format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
-
+            format.setVCharType(HanyuPinyinVCharType.WITH_V);
+            Map<String, String> syllables = new HashMap<>();
             try {
-                String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(firstChar, format);
-                if (pinyinArray != null && pinyinArray.length > 0) {
-                    // 取拼音首字母并大写
-                    return Character.toUpperCase(pinyinArray[0].charAt(0));
+                for (char c = FIRST_HAN; c <= LAST_HAN; c++) {
+                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, format);
+                    if (pinyinArray != null && pinyinArray.length > 0 && !pinyinArray[0].isEmpty()) {
+                        String syllable = syllables.computeIfAbsent(pinyinArray[0], key -> key);
+                        INITIALS[c - FIRST_HAN] = (byte) syllable.charAt(0);
+                        SYLLABLES[c - FIRST_HAN] = syllable;
+                    }
                 }
             } catch (BadHanyuPinyinOutputFormatCombination e) {
-                e.printStackTrace();
+                // 输出格式是固定的，出错说明pinyin4j不可用；不能留下不完整的表，否则之后的转换静默返回空
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    public static char getFirstLetterOfFirstCharacter(String chineseString) {
+        if (chineseString == null || chineseString.isEmpty()) {
+            return ' '; // 空或 null 返回空格
+        }
+
+        char firstChar = chineseString.charAt(0);
+
+        // 检查是否是中文字符
+        if (isHan(firstChar)) {
+            char initial = getInitial(firstChar);
+            if (initial != 0) {
+                // 取拼音首字母并大写
+                return Character.toUpperCase(initial);
             }
         } else if (Character.isLetter(firstChar)) {
             // 如果是字母，直接返回大写形式
@@ -39,6 +80,62 @@ public class ChinesePinyinFirstLetter {
         // 非中文且非字母时返回空字符（或可调整为默认值）
         return '\0';
     }
+
+    /**
+     * 获取字符串的全拼（小写、不带声调），多音字取第一个读音
+     * 字母和数字转为小写保留，其他字符忽略
+     */
+    public static String getPinyin(String chineseString) {
+        if (chineseString == null || chineseString.isEmpty()) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(chineseString.length() * 4);
+        for (int i = 0; i < chineseString.length(); i++) {
+            char c = chineseString.charAt(i);
+            if (isHan(c)) {
+                String syllable = Table.SYLLABLES[c - FIRST_HAN];
+                if (syllable != null) {
+                    result.append(syllable);
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                result.append(Character.toLowerCase(c));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 获取字符串每个字的拼音首字母（小写），如"好又多超市"返回"hydcs"
+     * 字母和数字转为小写保留，其他字符忽略
+     */
+    public static String getInitials(String chineseString) {
+        if (chineseString == null || chineseString.isEmpty()) {
+            return "";
+        }
+        char[] result = new char[chineseString.length()];
+        int length = 0;
+        for (int i = 0; i < chineseString.length(); i++) {
+            char c = chineseString.charAt(i);
+            char initial = isHan(c) ? getInitial(c)
+                    : Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : 0;
+            if (initial != 0) {
+                result[length++] = initial;
+            }
+        }
+        return new String(result, 0, length);
+    }
+
+    /**
+     * 汉字的拼音首字母（小写），没有拼音时返回0
+     */
+    private static char getInitial(char c) {
+        return (char) Table.INITIALS[c - FIRST_HAN];
+    }
+
+    private static boolean isHan(char c) {
+        return c >= FIRST_HAN && c <= LAST_HAN;
+    }
+
     @Test
     public  void testGetFirstLetterOfFirstCharacter() {
         String chineseString = "xxx";
@@ -0,0 +1,33 @@
+package com.example.modules.utils;
+
+/**
+ * 地理坐标计算工具
+ */
+public final class GeoUtils {
+
+    /**
+     * 地球平均半径（米）
+     */
+    public static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    /**
+     * 每度纬度对应的距离（米）
+     */
+    public static final double METERS_PER_DEGREE = 111_320;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * 按球面（haversine公式）计算两点之间的距离
+     *
+     * @return 距离（米）
+     */
+    public static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.modules.utils;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * JDBC批量写入工具
+ * 自增主键（IDENTITY）的实体无法使用Hibernate的批量插入，大批量写入时直接走JDBC批处理，
+ * 配合连接串的rewriteBatchedStatements=true会被驱动改写为多行INSERT
+ */
+public final class JdbcBatch {
+
+    private JdbcBatch() {
+    }
+
+    /**
+     * 行参数绑定
+     */
+    @FunctionalInterface
+    public interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    /**
+     * 批量插入并返回自增主键
+     *
+     * @param jdbcTemplate JdbcTemplate
+     * @param sql          单行INSERT语句
+     * @param rows         待插入的数据
+     * @param binder       参数绑定
+     * @return 与rows顺序一致的自增主键
+     */
+    public static <T> List<Integer> insert(JdbcTemplate jdbcTemplate, String sql, List<T> rows, RowBinder<T> binder) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                                 setter(rows, binder), keyHolder);
+        return keyHolder.getKeyList()
+                        .stream()
+                        .map(keys -> ((Number) keys.values()
+                                                   .iterator()
+                                                   .next()).intValue())
+                        .toList();
+    }
+
+    /**
+     * 批量执行同一条语句
+     *
+     * @param jdbcTemplate JdbcTemplate
+     * @param sql          单行语句
+     * @param rows         数据
+     * @param binder       参数绑定
+     */
+    public static <T> void update(JdbcTemplate jdbcTemplate, String sql, List<T> rows, RowBinder<T> binder) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, setter(rows, binder));
+    }
+
+    private static <T> BatchPreparedStatementSetter setter(List<T> rows, RowBinder<T> binder) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                binder.bind(ps, rows.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.modules.utils;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 可增量刷新的文本搜索索引
+ * 持有当前的 {@link TextSearchIndex}：全量构建时整体替换，记录新建、修改或删除后在事务提交后按ID重新读取并更新；
+ * 记录的读取方式和检索字段由使用方提供
+ * <p>
+ * 构建期间提交的修改不一定在全量读取的结果中，这些记录在替换后重新读取一次，不会被新索引覆盖丢失；
+ * 因此全量构建不能在事务中执行（重新读取需要看到最新数据）
+ *
+ * @param <T> 记录类型
+ */
+public class ReloadableSearchIndex<T> {
+
+    private final double[] weights;
+    private final Supplier<List<T>> loadAll; // 读取全部记录
+    private final Function<Collection<Integer>, List<T>> loadByIds; // 按ID读取记录，已删除的不返回
+    private final ToIntFunction<T> idOf;
+    private final Function<T, String[]> fieldsOf; // 检索字段，顺序与权重一致
+
+    private volatile TextSearchIndex<T> index;
+
+    private Set<Integer> changedDuringRebuild; // 构建期间更新过的记录ID，受this锁保护；null表示不在构建
+
+    /**
+     * @param weights        各检索字段的权重
+     * @param fuzzyThreshold 构建之前使用的模糊匹配阈值
+     * @param loadAll        读取全部记录
+     * @param loadByIds      按ID读取记录，已删除的不返回
+     * @param idOf           记录ID
+     * @param fieldsOf       记录的检索字段
+     */
+    public ReloadableSearchIndex(double[] weights, double fuzzyThreshold, Supplier<List<T>> loadAll,
+                                 Function<Collection<Integer>, List<T>> loadByIds, ToIntFunction<T> idOf,
+                                 Function<T, String[]> fieldsOf) {
+        this.weights = weights.clone();
+        this.loadAll = loadAll;
+        this.loadByIds = loadByIds;
+        this.idOf = idOf;
+        this.fieldsOf = fieldsOf;
+        this.index = new TextSearchIndex<>(this.weights, fuzzyThreshold);
+    }
+
+    /**
+     * 读取全部记录构建新索引并替换
+     *
+     * @param fuzzyThreshold 模糊匹配要求的共有两字组比例
+     * @return 索引中的记录数
+     */
+    public int rebuild(double fuzzyThreshold) {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        TextSearchIndex<T> newIndex = new TextSearchIndex<>(weights, fuzzyThreshold);
+        try {
+            for (T value : loadAll.get()) {
+                put(newIndex, value);
+            }
+        } catch (RuntimeException e) {
+            // 构建失败时保留原索引，期间的修改已更新到原索引
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+        Set<Integer> changed;
+        synchronized (this) {
+            index = newIndex;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        if (!changed.isEmpty()) {
+            reload(changed);
+        }
+        return newIndex.size();
+    }
+
+    /**
+     * 记录新建、修改或删除后更新索引
+     * 在当前事务提交后一次性重新读取这些记录；已删除的记录从索引中移除
+     *
+     * @param ids 记录ID
+     */
+    public void onChanged(Collection<Integer> ids) {
+        Set<Integer> changed = new HashSet<>(ids);
+        if (changed.isEmpty()) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> reload(changed));
+    }
+
+    /**
+     * 当前索引，用于查询
+     */
+    public TextSearchIndex<T> current() {
+        return index;
+    }
+
+    /**
+     * 重新读取记录并更新当前索引
+     * 读取和更新在同一把锁内，同一记录的多次重新读取按顺序生效，不会用较早读到的数据覆盖较新的
+     */
+    private synchronized void reload(Set<Integer> ids) {
+        List<T> values = loadByIds.apply(ids);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.addAll(ids);
+        }
+        Set<Integer> removed = new HashSet<>(ids);
+        for (T value : values) {
+            put(index, value);
+            removed.remove(idOf.applyAsInt(value));
+        }
+        removed.forEach(index::remove);
+    }
+
+    private void put(TextSearchIndex<T> target, T value) {
+        target.put(idOf.applyAsInt(value), value, fieldsOf.apply(value));
+    }
+}
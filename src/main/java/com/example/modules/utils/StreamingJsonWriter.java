@@ -0,0 +1,152 @@
+package com.example.modules.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 流式JSON输出工具
+ * 在只读事务中从数据库游标逐条读取结果，并通过JsonGenerator边读边写，
+ * 响应体大小不再受限于内存，适用于大数据量的列表和统计接口
+ * 响应头在第一批数据写出时已提交，之后出错无法再改状态码：此时不补全JSON的结尾，
+ * 异常继续抛给容器中断连接，客户端收到的是不完整的响应，而不是看似完整的截断数据
+ */
+@Component
+@Slf4j
+public class StreamingJsonWriter {
+
+    /**
+     * 每写出多少条记录刷一次输出
+     */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public StreamingJsonWriter(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        // 逐条写出时不需要每个元素都flush，由FLUSH_INTERVAL统一控制
+        this.objectWriter = objectMapper.writer()
+                                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * 以JSON数组的形式流式输出
+     * 元素是实体时写出后即从持久化上下文中分离，避免托管实体在内存中累积；
+     * 抓取的关联实体由多条记录共用，数量有限，保持托管
+     *
+     * @param source 数据流提供者，在只读事务内调用，返回的Stream会在写出完成后关闭
+     * @return 流式响应
+     */
+    public <T> ResponseEntity<StreamingResponseBody> array(Supplier<Stream<T>> source) {
+        return response(generator -> {
+            generator.writeStartArray();
+            try (Stream<T> stream = source.get()) {
+                Iterator<T> iterator = stream.iterator();
+                int count = 0;
+                while (iterator.hasNext()) {
+                    T element = iterator.next();
+                    objectWriter.writeValue(generator, element);
+                    detach(element);
+                    if (++count % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    /**
+     * 以JSON对象的形式流式输出，每个键值对对应对象的一个字段
+     *
+     * @param source 键值对流提供者，在只读事务内调用，键通过toString()作为字段名
+     * @return 流式响应
+     */
+    public <K, V> ResponseEntity<StreamingResponseBody> object(Supplier<Stream<Map.Entry<K, V>>> source) {
+        return response(generator -> {
+            generator.writeStartObject();
+            try (Stream<Map.Entry<K, V>> stream = source.get()) {
+                Iterator<Map.Entry<K, V>> iterator = stream.iterator();
+                int count = 0;
+                while (iterator.hasNext()) {
+                    Map.Entry<K, V> entry = iterator.next();
+                    generator.writeFieldName(String.valueOf(entry.getKey()));
+                    objectWriter.writeValue(generator, entry.getValue());
+                    detach(entry.getValue());
+                    if (++count % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * 构建流式响应，写出过程在只读事务中执行，保证游标在整个输出期间保持打开
+     * 出错时关闭生成器不补全数组/对象的结尾，异常抛给容器中断连接
+     */
+    private ResponseEntity<StreamingResponseBody> response(JsonBody body) {
+        StreamingResponseBody responseBody = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                // 输出流由容器负责关闭
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // 正常结束时结尾已显式写出；出错时不能自动补全，否则截断的数据也是合法JSON
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                transactionTemplate.executeWithoutResult(status -> {
+                    try {
+                        body.write(generator);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (RuntimeException | IOException e) {
+                log.error("流式输出中断，响应不完整: {}", e.getMessage());
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_JSON)
+                             .body(responseBody);
+    }
+
+    /**
+     * 把已写出的实体从持久化上下文中分离，只影响本次输出的元素，不清理事务中的其他实体
+     */
+    private void detach(Object value) {
+        if (value != null && value.getClass()
+                                  .isAnnotationPresent(Entity.class)) {
+            entityManager.detach(value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.modules.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存文本搜索索引
+ * 每条记录有若干个检索字段（如名称、地址、拼音、拼音首字母），对字段中的单字和相邻两字建立倒排表；
+ * 查询时先用查询词的两字组求交集得到候选，再按完全相同、前缀、包含排序；
+ * 精确匹配不足时按共有两字组的比例做模糊匹配
+ * <p>
+ * 写操作串行，读操作不加锁
+ *
+ * @param <T> 返回的记录类型
+ */
+public class TextSearchIndex<T> {
+
+    private static final double EXACT_SCORE = 100;
+    private static final double PREFIX_SCORE = 60;
+    private static final double CONTAINS_SCORE = 30;
+    private static final double FUZZY_SCORE = 20;
+
+    /**
+     * 各字段的权重，字段顺序与 {@link #put} 的参数一致
+     */
+    private final double[] weights;
+
+    /**
+     * 模糊匹配要求的共有两字组比例
+     */
+    private final double fuzzyThreshold;
+
+    /**
+     * 单字或两字组 -> 记录ID
+     */
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+
+    /**
+     * 记录ID -> 记录
+     */
+    private final Map<Integer, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    private record Entry<T>(T value, String[] fields) {
+    }
+
+    private record Hit<T>(int id, T value, double score, int length) {
+    }
+
+    /**
+     * @param weights        各检索字段的权重
+     * @param fuzzyThreshold 模糊匹配要求的共有两字组比例（0~1）
+     */
+    public TextSearchIndex(double[] weights, double fuzzyThreshold) {
+        this.weights = weights.clone();
+        this.fuzzyThreshold = fuzzyThreshold;
+    }
+
+    /**
+     * 新增或替换记录
+     *
+     * @param id     记录ID
+     * @param value  记录
+     * @param fields 检索字段，个数与权重一致，可以为null
+     */
+    public synchronized void put(int id, T value, String... fields) {
+        remove(id);
+        String[] normalized = new String[weights.length];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = i < fields.length ? normalize(fields[i]) : "";
+            for (String gram : grams(normalized[i], true)) {
+                postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet())
+                        .add(id);
+            }
+        }
+        entries.put(id, new Entry<>(value, normalized));
+    }
+
+    /**
+     * 移除记录
+     */
+    public synchronized void remove(int id) {
+        Entry<T> old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String field : old.fields()) {
+            for (String gram : grams(field, true)) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录条数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 搜索
+     *
+     * @param query 查询词，忽略大小写和空白
+     * @param limit 最多返回的记录数
+     * @return 按匹配程度排序的记录
+     */
+    public List<T> search(String query, int limit) {
+        return search(query, 0, limit);
+    }
+
+    /**
+     * 分页搜索
+     *
+     * @param query  查询词，忽略大小写和空白
+     * @param offset 跳过的记录数
+     * @param limit  最多返回的记录数
+     * @return 按匹配程度排序的记录
+     */
+    public List<T> search(String query, long offset, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // 1. 精确匹配：候选为包含全部查询两字组（单字查询为该字）的记录
+        Set<String> queryGrams = grams(q, false);
+        Map<Integer, Hit<T>> hits = new HashMap<>();
+        for (int id : intersect(queryGrams)) {
+            Entry<T> entry = entries.get(id);
+            if (entry == null) {
+                continue;
+            }
+            double score = 0;
+            int length = Integer.MAX_VALUE;
+            for (int i = 0; i < weights.length; i++) {
+                String field = entry.fields()[i];
+                double fieldScore = field.equals(q) ? EXACT_SCORE
+                        : field.startsWith(q) ? PREFIX_SCORE
+                        : field.contains(q) ? CONTAINS_SCORE : 0;
+                if (fieldScore > 0) {
+                    score = Math.max(score, fieldScore * weights[i]);
+                    length = Math.min(length, field.length());
+                }
+            }
+            if (score > 0) {
+                hits.put(id, new Hit<>(id, entry.value(), score, length));
+            }
+        }
+
+        // 2. 模糊匹配：共有两字组比例达到阈值的记录
+        if (hits.size() < offset + limit && q.length() > 1) {
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String gram : queryGrams) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids != null) {
+                    for (int id : ids) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            shared.forEach((id, count) -> {
+                double ratio = (double) count / queryGrams.size();
+                Entry<T> entry = entries.get(id);
+                if (ratio >= fuzzyThreshold && entry != null && !hits.containsKey(id)) {
+                    hits.put(id, new Hit<>(id, entry.value(), FUZZY_SCORE * ratio, Integer.MAX_VALUE));
+                }
+            });
+        }
+
+        // 3. 排序：分数高的在前，同分时匹配字段短的在前
+        return hits.values()
+                   .stream()
+                   .sorted(Comparator.comparingDouble((Hit<T> hit) -> -hit.score())
+                                     .thenComparingInt(Hit::length)
+                                     .thenComparingInt(Hit::id))
+                   .skip(offset)
+                   .limit(limit)
+                   .map(Hit::value)
+                   .toList();
+    }
+
+    /**
+     * 取各两字组倒排表的交集，从最短的开始
+     */
+    private Set<Integer> intersect(Set<String> queryGrams) {
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String gram : queryGrams) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> result = new LinkedHashSet<>(lists.getFirst());
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 文本的两字组；单字文本或需要索引时包含单字
+     */
+    private static Set<String> grams(String text, boolean withUnigrams) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (withUnigrams || text.length() == 1) {
+            for (int i = 0; i < text.length(); i++) {
+                grams.add(text.substring(i, i + 1));
+            }
+        }
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString()
+                     .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,7 @@
+-- 批次号序号分配表
+-- 每天一行，next_value为下一个未分配的序号
+-- 应用按号段（block）整段预留序号，生成批次号时不再统计batch表
+CREATE TABLE batch_number_sequence (
+    seq_date DATE NOT NULL PRIMARY KEY COMMENT '批次号日期',
+    next_value INT NOT NULL COMMENT '下一个未分配的序号'
+) COMMENT '批次号序号分配表';
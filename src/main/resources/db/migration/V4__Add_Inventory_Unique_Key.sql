@@ -0,0 +1,24 @@
+-- 库存表按(商品, 批次)唯一
+-- 批次为NULL（非批次商品）时唯一索引不生效，因此增加生成列batch_key，NULL视为0
+-- 批量入库使用 INSERT ... ON DUPLICATE KEY UPDATE 依赖此唯一索引
+
+-- 1. 合并重复的库存记录，保留id最小的一条
+UPDATE inventory i
+    JOIN (SELECT MIN(id) AS keep_id, SUM(quantity) AS total
+          FROM inventory
+          GROUP BY product_id, IFNULL(batch_id, 0)
+          HAVING COUNT(*) > 1) d ON i.id = d.keep_id
+SET i.quantity = d.total;
+
+DELETE i
+FROM inventory i
+         JOIN (SELECT MIN(id) AS keep_id, product_id, IFNULL(batch_id, 0) AS batch_key
+               FROM inventory
+               GROUP BY product_id, IFNULL(batch_id, 0)
+               HAVING COUNT(*) > 1) d
+              ON i.product_id = d.product_id AND IFNULL(i.batch_id, 0) = d.batch_key AND i.id <> d.keep_id;
+
+-- 2. 增加生成列和唯一索引
+ALTER TABLE inventory
+    ADD COLUMN batch_key INT AS (IFNULL(batch_id, 0)) STORED COMMENT '批次键（非批次商品为0）',
+    ADD UNIQUE INDEX uk_inventory_product_batch (product_id, batch_key);
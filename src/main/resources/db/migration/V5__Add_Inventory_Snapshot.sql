@@ -0,0 +1,14 @@
+-- 库存快照表
+-- 定期保存每个商品、批次的库存数量，历史库存查询从最近的快照开始，只回放之后的库存变动
+-- 快照是历史数据，不加外键，批次或商品删除后快照保持不变
+CREATE TABLE inventory_snapshot (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    snapshot_time DATETIME NOT NULL COMMENT '快照时间',
+    product_id INT NOT NULL COMMENT '商品ID',
+    batch_id INT NULL COMMENT '批次ID（非批次商品为NULL）',
+    quantity INT NOT NULL COMMENT '快照时的库存数量',
+    INDEX idx_inventory_snapshot_time (snapshot_time)
+) COMMENT '库存快照表';
+
+-- 按时间范围回放库存变动
+CREATE INDEX idx_inventory_transactions_time ON inventory_transactions (transaction_time);
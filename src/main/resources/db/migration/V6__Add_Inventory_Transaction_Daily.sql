@@ -0,0 +1,20 @@
+-- 库存变动按商品、日期、操作类型的日汇总
+-- 由库存流水写库时增量维护，长时间段的变动汇总直接读取日汇总，不再扫描明细
+CREATE TABLE inventory_transaction_daily (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    product_id INT NOT NULL COMMENT '商品ID',
+    summary_date DATE NOT NULL COMMENT '日期',
+    operation_type VARCHAR(50) NOT NULL COMMENT '操作类型',
+    quantity INT NOT NULL DEFAULT 0 COMMENT '当日变动数量合计',
+    transaction_count INT NOT NULL DEFAULT 0 COMMENT '当日变动次数',
+    UNIQUE INDEX uk_transaction_daily (product_id, summary_date, operation_type)
+) COMMENT '库存变动日汇总表';
+
+-- 用已有的库存变动初始化日汇总
+INSERT INTO inventory_transaction_daily (product_id, summary_date, operation_type, quantity, transaction_count)
+SELECT product_id, DATE(transaction_time), operation_type, SUM(quantity), COUNT(*)
+FROM inventory_transactions
+GROUP BY product_id, DATE(transaction_time), operation_type;
+
+-- 按商品和时间范围查询、汇总库存变动
+CREATE INDEX idx_inventory_transactions_product_time ON inventory_transactions (product_id, transaction_time);
@@ -0,0 +1,21 @@
+-- 应收账款流水：只追加，每条记录保存记账后的余额，shop.arrears为最新余额
+CREATE TABLE receivable_entry (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    shop_id INT NOT NULL COMMENT '商家ID',
+    entry_type VARCHAR(20) NOT NULL COMMENT '类型：销售欠款、收款、调整',
+    amount DECIMAL(12, 2) NOT NULL COMMENT '金额，增加欠款为正，减少欠款为负',
+    balance DECIMAL(12, 2) NOT NULL COMMENT '记账后的欠款余额',
+    entry_time DATETIME NOT NULL COMMENT '记账时间',
+    order_id INT NULL COMMENT '关联订单ID',
+    remark VARCHAR(255) NULL COMMENT '备注',
+    INDEX idx_receivable_entry_shop (shop_id, id)
+) COMMENT '应收账款流水表';
+
+-- 现有欠款作为期初余额
+INSERT INTO receivable_entry (shop_id, entry_type, amount, balance, entry_time, remark)
+SELECT id, '调整', arrears, arrears, NOW(), '期初欠款'
+FROM shop
+WHERE arrears <> 0;
+
+-- 欠款商家查询走索引
+CREATE INDEX idx_shop_arrears ON shop (arrears);
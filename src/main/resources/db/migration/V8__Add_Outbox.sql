@@ -0,0 +1,10 @@
+-- 事务发件箱：订单、采购、库存变动的领域事件与业务数据在同一事务中写入，
+-- 由后台转发程序按id顺序批量投递给下游（文件、Webhook）后删除
+CREATE TABLE outbox_event (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_type VARCHAR(20) NOT NULL COMMENT '聚合类型：order、purchase、product',
+    aggregate_id INT NOT NULL COMMENT '聚合ID',
+    event_type VARCHAR(50) NOT NULL COMMENT '事件类型',
+    payload TEXT NOT NULL COMMENT '事件内容（JSON）',
+    create_time DATETIME NOT NULL COMMENT '写入时间'
+) COMMENT '事务发件箱';
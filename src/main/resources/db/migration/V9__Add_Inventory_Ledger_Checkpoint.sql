@@ -0,0 +1,7 @@
+-- 库存流水检查点
+-- 每个流水文件一行，last_seq为已写入inventory_transactions的最大序号，
+-- 与明细、日汇总在同一事务中更新，写库成功后进程崩溃也不会重复写入
+CREATE TABLE inventory_ledger_checkpoint (
+    journal_id VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '流水文件标识',
+    last_seq BIGINT NOT NULL COMMENT '已写库的最大序号'
+) COMMENT '库存流水检查点';
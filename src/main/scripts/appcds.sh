@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# 把Spring Boot可执行jar解压为普通类路径并生成AppCDS归档
+# CDS只能归档类路径上的jar，不能归档可执行jar中的嵌套jar，因此先解压：
+#   <输出目录>/application.jar  应用类，清单中按classpath.idx顺序引用lib下的依赖
+#   <输出目录>/lib/             依赖jar
+#   <输出目录>/application.jsa  训练运行（启动到上下文刷新完成即退出）生成的CDS归档
+#   <输出目录>/jvm.options      运行时的JVM参数（profile，打包时做过AOT处理则启用AOT）
+#   <输出目录>/start.sh         使用归档启动
+# 用法：appcds.sh <可执行jar> <输出目录> [Spring profile]
+set -euo pipefail
+
+JAR=$(realpath "$1")
+OUT=$2
+PROFILE=${3:-fast-start}
+
+rm -rf "$OUT"
+mkdir -p "$OUT/lib"
+OUT=$(realpath "$OUT")
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+# 1. 解压
+(cd "$WORK" && jar -xf "$JAR")
+MAIN_CLASS=$(sed -n 's/^Start-Class: *//p' "$WORK/META-INF/MANIFEST.MF" | tr -d '\r')
+
+# 2. 依赖按classpath.idx的顺序复制，训练和运行时类路径一致
+CLASS_PATH=""
+while read -r lib; do
+    cp "$WORK/BOOT-INF/lib/$lib" "$OUT/lib/"
+    CLASS_PATH="$CLASS_PATH lib/$lib"
+done < <(sed -n 's/^- "BOOT-INF\/lib\/\(.*\)"$/\1/p' "$WORK/BOOT-INF/classpath.idx")
+
+# 3. 应用类打成jar，清单行不超过72字节，续行以空格开头
+{
+    echo "Manifest-Version: 1.0"
+    echo "Main-Class: $MAIN_CLASS"
+    echo "Class-Path:$CLASS_PATH" | fold -b -w 71 | sed '2,$s/^/ /'
+} > "$WORK/MANIFEST.MF"
+jar --create --file "$OUT/application.jar" --manifest "$WORK/MANIFEST.MF" -C "$WORK/BOOT-INF/classes" .
+
+# 4. 打包时做过AOT处理则运行时启用
+JAVA_OPTS="-Dspring.profiles.active=$PROFILE"
+if [ -n "$(find "$WORK/BOOT-INF/classes" -name '*__ApplicationContextInitializer.class' -print -quit)" ]; then
+    JAVA_OPTS="$JAVA_OPTS -Dspring.aot.enabled=true"
+fi
+
+echo "$JAVA_OPTS" > "$OUT/jvm.options"
+
+# 5. 训练运行：上下文刷新完成后退出，退出时写入归档
+(cd "$OUT" && java -XX:ArchiveClassesAtExit=application.jsa -Dspring.context.exit=onRefresh $JAVA_OPTS \
+    -jar application.jar > appcds-training.log 2>&1) || true
+if [ ! -s "$OUT/application.jsa" ]; then
+    echo "AppCDS归档生成失败，见 $OUT/appcds-training.log" >&2
+    exit 1
+fi
+
+cat > "$OUT/start.sh" <<START
+#!/usr/bin/env bash
+# 使用AppCDS归档启动，参数原样传给应用
+cd "\$(dirname "\$0")"
+exec java -XX:SharedArchiveFile=application.jsa \$(cat jvm.options) \$JAVA_OPTS -jar application.jar "\$@"
+START
+chmod +x "$OUT/start.sh"
+echo "AppCDS归档已生成: $OUT/application.jsa ($(du -h "$OUT/application.jsa" | cut -f1))"
@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# 启动基准测试：分别以默认配置、fast-start配置、fast-start + AOT + AppCDS启动到应用就绪（startup.exit-when-ready，
+# ApplicationReadyEvent的监听器执行完，包括各内存索引的重建；不用spring.context.exit=onRefresh，它在重建之前就退出），
+# 每种各运行若干次，统计进程从启动到退出的耗时中位数；结果写入 <输出目录>/startup-benchmark.txt
+# 需要能连接application.yml中配置的数据库（就绪时的重建读库，fast-start下与连接池预热同时进行，一并计入）
+# 各次运行依次启动Web服务器，需要server.port空闲
+# 用法：startup-benchmark.sh <可执行jar> <appcds.sh的输出目录> [运行次数]
+set -uo pipefail
+
+JAR=$(realpath "$1")
+OUT=$(realpath "$2")
+RUNS=${3:-5}
+REPORT="$OUT/startup-benchmark.txt"
+EXIT_ONLY="-Dstartup.exit-when-ready=true"
+AOT_OPTS=$(cat "$OUT/jvm.options")
+
+# 运行RUNS次，输出耗时中位数（毫秒），任意一次失败输出"失败"
+measure() {
+    local name=$1
+    shift
+    local times=()
+    for ((i = 1; i <= RUNS; i++)); do
+        local start end
+        start=$(date +%s%N)
+        if ! (cd "$OUT" && "$@" > "$OUT/benchmark-$name.log" 2>&1); then
+            echo "失败（见 benchmark-$name.log）"
+            return 1
+        fi
+        end=$(date +%s%N)
+        times+=($(((end - start) / 1000000)))
+    done
+    printf '%s\n' "${times[@]}" | sort -n | sed -n "$(((RUNS + 1) / 2))p"
+}
+
+{
+    echo "启动耗时（启动到应用就绪，${RUNS}次中位数，毫秒）"
+    echo "默认配置:                 $(measure default java $EXIT_ONLY -jar "$JAR")"
+    echo "fast-start:               $(measure fast-start java $EXIT_ONLY -Dspring.profiles.active=fast-start -jar "$JAR")"
+    echo "fast-start + AOT + AppCDS: $(measure fast-start-aot-cds java -XX:SharedArchiveFile=application.jsa $AOT_OPTS $EXIT_ONLY -jar application.jar)"
+} | tee "$REPORT"
+
+# 只有快速启动本身失败时构建失败
+grep -q "^fast-start + AOT + AppCDS: [0-9]" "$REPORT"
@@ -0,0 +1,221 @@
+package com.example.modules.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 领域事件总线：环形缓冲区绕圈后的投递顺序，以及最慢消费者落后满一圈时的背压
+ */
+class DomainEventBusTest {
+
+    private static final int RING_SIZE = 4;
+
+    private DomainEventBus bus;
+
+    /**
+     * 记录收到的订单ID，可以阻塞投递线程模拟慢消费者
+     */
+    private static final class RecordingConsumer implements DomainEventConsumer {
+        private final List<Integer> received = new ArrayList<>();
+        private final CountDownLatch release;
+        private final CountDownLatch done;
+
+        private RecordingConsumer(boolean blocked, int expected) {
+            this.release = new CountDownLatch(blocked ? 1 : 0);
+            this.done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onEvent(DomainEvent event) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+            }
+            synchronized (this) {
+                received.add(((OrderCreatedEvent) event).orderId());
+            }
+            done.countDown();
+        }
+
+        private synchronized List<Integer> received() {
+            return List.copyOf(received);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    void deliversInOrderAcrossRingWraps() throws InterruptedException {
+        int count = RING_SIZE * 10;
+        RecordingConsumer fast = new RecordingConsumer(false, count);
+        RecordingConsumer slow = new RecordingConsumer(false, count);
+        bus = bus(fast, slow);
+        bus.start();
+
+        for (int i = 0; i < count; i++) {
+            bus.publish(event(i));
+        }
+
+        assertTrue(fast.done.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.done.await(5, TimeUnit.SECONDS));
+        List<Integer> expected = IntStream.range(0, count)
+                                          .boxed()
+                                          .toList();
+        assertEquals(expected, fast.received());
+        assertEquals(expected, slow.received());
+    }
+
+    @Test
+    void publisherWaitsForSlowestConsumer() throws Exception {
+        RecordingConsumer fast = new RecordingConsumer(false, RING_SIZE + 1);
+        RecordingConsumer slow = new RecordingConsumer(true, RING_SIZE + 1);
+        bus = bus(fast, slow);
+        bus.start();
+
+        // 慢消费者卡在第一个事件上，缓冲区写满一圈后发布方等待，快消费者不受影响
+        for (int i = 0; i < RING_SIZE; i++) {
+            bus.publish(event(i));
+        }
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> bus.publish(event(RING_SIZE)));
+        assertTrue(awaitReceived(fast, RING_SIZE));
+        Thread.sleep(200);
+        assertFalse(blocked.isDone());
+
+        slow.release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertTrue(fast.done.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.done.await(5, TimeUnit.SECONDS));
+        List<Integer> expected = IntStream.rangeClosed(0, RING_SIZE)
+                                          .boxed()
+                                          .toList();
+        assertEquals(expected, fast.received());
+        assertEquals(expected, slow.received());
+    }
+
+    @Test
+    void replaySkipsBufferedEventsCoveredBySnapshot() throws InterruptedException {
+        // 快照中有订单1、5；订单2在回放前已取消删除；订单3在快照之后提交
+        List<String> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        DomainEventConsumer consumer = new DomainEventConsumer() {
+            @Override
+            public LocalDateTime replayFrom() {
+                return LocalDateTime.MIN;
+            }
+
+            @Override
+            public synchronized void onEvent(DomainEvent event) {
+                received.add(switch (event) {
+                    case OrderCreatedEvent created -> "+" + created.orderId();
+                    case OrderCancelledEvent cancelled -> "-" + cancelled.orderId();
+                    default -> event.toString();
+                });
+                done.countDown();
+            }
+        };
+        DomainEventReplayer replayer = new DomainEventReplayer() {
+            @Override
+            public long replay(LocalDateTime from, LocalDateTime until, Predicate<Class<? extends DomainEvent>> accepts,
+                               Consumer<DomainEvent> sink,
+                               Consumer<Function<Collection<Integer>, Collection<Integer>>> catchUp) {
+                sink.accept(event(1));
+                sink.accept(event(5));
+                catchUp.accept(ids -> ids.stream()
+                                         .filter(id -> id == 1 || id == 5)
+                                         .toList());
+                return 2;
+            }
+        };
+        bus = bus(consumer);
+        ReflectionTestUtils.setField(bus, "replayer", replayer);
+        bus.publish(event(1));
+        bus.publish(cancelled(2));
+        bus.publish(event(3));
+
+        bus.start();
+        assertTrue(awaitSize(consumer, received, 3));
+        bus.publish(cancelled(5));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        synchronized (consumer) {
+            assertEquals(List.of("+1", "+5", "+3", "-5"), received);
+        }
+    }
+
+    @Test
+    void rejectsRingSizeThatIsNotPowerOfTwo() {
+        DomainEventBus invalid = new DomainEventBus();
+        ReflectionTestUtils.setField(invalid, "consumers", List.of());
+        ReflectionTestUtils.setField(invalid, "ringSize", 6);
+        assertThrows(IllegalStateException.class, invalid::init);
+    }
+
+    private static DomainEventBus bus(DomainEventConsumer... consumers) {
+        DomainEventBus bus = new DomainEventBus();
+        ReflectionTestUtils.setField(bus, "consumers", List.of(consumers));
+        ReflectionTestUtils.setField(bus, "ringSize", RING_SIZE);
+        bus.init();
+        return bus;
+    }
+
+    private static boolean awaitReceived(RecordingConsumer consumer, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (consumer.received()
+                       .size() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static boolean awaitSize(Object lock, List<String> received, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            synchronized (lock) {
+                if (received.size() >= count) {
+                    return true;
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static OrderCancelledEvent cancelled(int orderId) {
+        return new OrderCancelledEvent(orderId, 1, LocalDateTime.now(), BigDecimal.ONE, BigDecimal.ZERO, List.of());
+    }
+
+    private static OrderCreatedEvent event(int orderId) {
+        return new OrderCreatedEvent(orderId, 1, LocalDateTime.now(), BigDecimal.ONE, BigDecimal.ZERO, List.of());
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.modules.service;
+
+import com.example.modules.entity.OperationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 库存变动流水：崩溃后从流水文件补写，检查点之前的记录不会重复写库
+ */
+class InventoryLedgerServiceTest {
+
+    private static final String JOURNAL_ID = "test-journal";
+
+    @TempDir
+    Path dir;
+
+    private final LedgerTables tables = new LedgerTables();
+
+    private InventoryLedgerService service;
+
+    /**
+     * 内存中的inventory_transactions、inventory_transaction_daily和检查点表
+     */
+    private static final class LedgerTables extends JdbcTemplate {
+        private final List<Integer> products = new ArrayList<>(); // 已写入明细的商品ID，按写入顺序
+        private int dailyCount; // 日汇总累加的次数合计
+        private final Map<Object, Long> checkpoints = new HashMap<>();
+        private boolean loseNextCheckpointUpdate; // 下一次推进检查点后报告失败，模拟提交成功但结果丢失
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT IGNORE INTO inventory_ledger_checkpoint")) {
+                checkpoints.putIfAbsent(args[0], 0L);
+                return 1;
+            }
+            checkpoints.put(args[1], ((Number) args[0]).longValue());
+            if (loseNextCheckpointUpdate) {
+                loseNextCheckpointUpdate = false;
+                throw new DataAccessResourceFailureException("提交结果丢失");
+            }
+            return 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            return (T) checkpoints.get(args[0]);
+        }
+
+        @Override
+        public synchronized int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+            int[] counts = new int[pss.getBatchSize()];
+            for (int i = 0; i < counts.length; i++) {
+                Map<Integer, Object> row = new HashMap<>();
+                try {
+                    pss.setValues(statement(row), i);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (sql.contains("inventory_transaction_daily")) {
+                    dailyCount += (Integer) row.get(5);
+                } else {
+                    products.add((Integer) row.get(1));
+                }
+                counts[i] = 1;
+            }
+            return counts;
+        }
+
+        @Override
+        public synchronized int update(String sql, PreparedStatementSetter pss) {
+            Map<Integer, Object> row = new HashMap<>();
+            try {
+                pss.setValues(statement(row));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            products.add((Integer) row.get(1));
+            return 1;
+        }
+
+        private synchronized List<Integer> products() {
+            return List.copyOf(products);
+        }
+
+        private synchronized int dailyCount() {
+            return dailyCount;
+        }
+
+        private synchronized long checkpoint() {
+            return checkpoints.getOrDefault(JOURNAL_ID, -1L);
+        }
+
+        /**
+         * 记录按参数位置绑定的值
+         */
+        private static PreparedStatement statement(Map<Integer, Object> row) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                              new Class<?>[]{PreparedStatement.class},
+                                                              (proxy, method, args) -> {
+                                                                  if (method.getName()
+                                                                            .startsWith("set")) {
+                                                                      row.put((Integer) args[0],
+                                                                              method.getName()
+                                                                                    .equals("setNull") ? null : args[1]);
+                                                                  }
+                                                                  return null;
+                                                              });
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void replaysJournalAfterCrash() throws Exception {
+        // 崩溃前：1、2、4已提交，3已作废，5只写了一半
+        journal("""
+                1,101,,5,采购入库,,2024-06-01T10:00
+                2,102,7,-2,销售出库,9,2024-06-01T10:01
+                3,103,,1,采购入库,,2024-06-01T10:02
+                4,104,,3,退货入库,,2024-06-02T09:00
+                V,3
+                5,10""");
+        start();
+
+        assertTrue(await(() -> tables.checkpoint() == 5));
+        assertEquals(List.of(101, 102, 104), tables.products());
+        assertEquals(3, tables.dailyCount());
+        assertTrue(await(() -> journalSize() == 0));
+
+        // 新记录从崩溃前的最大序号之后继续编号
+        service.record(105, null, 1, OperationType.采购入库, null);
+        assertTrue(await(() -> tables.checkpoint() == 6));
+        assertEquals(List.of(101, 102, 104, 105), tables.products());
+    }
+
+    @Test
+    void skipsEntriesBeforeCheckpointOnRestart() throws Exception {
+        // 上次运行已写库到2，流水文件尚未清空
+        tables.checkpoints.put(JOURNAL_ID, 2L);
+        journal("""
+                1,101,,5,采购入库,,2024-06-01T10:00
+                2,102,,5,采购入库,,2024-06-01T10:00
+                3,103,,5,采购入库,,2024-06-01T10:00
+                4,104,,5,采购入库,,2024-06-01T10:00
+                """);
+        start();
+
+        assertTrue(await(() -> tables.checkpoint() == 4));
+        assertEquals(List.of(103, 104), tables.products());
+        assertEquals(2, tables.dailyCount());
+    }
+
+    @Test
+    void retriesWithoutDuplicatesWhenCommitOutcomeIsLost() throws Exception {
+        start();
+        tables.loseNextCheckpointUpdate = true;
+
+        service.record(101, null, 1, OperationType.采购入库, null);
+        service.record(102, null, 1, OperationType.采购入库, null);
+        service.record(103, null, 1, OperationType.采购入库, null);
+
+        // 写库已生效但报告失败，重试时按检查点过滤，不再重复写入
+        assertTrue(await(() -> tables.checkpoint() == 3 && journalSize() == 0));
+        assertEquals(List.of(101, 102, 103), tables.products());
+        assertEquals(3, tables.dailyCount());
+    }
+
+    private void start() throws IOException {
+        Files.writeString(dir.resolve("inventory-ledger.id"), JOURNAL_ID);
+        service = new InventoryLedgerService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", tables);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "ledgerDir", dir.toString());
+        ReflectionTestUtils.setField(service, "queueCapacity", 100);
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 10L);
+        service.start();
+    }
+
+    private void journal(String lines) throws IOException {
+        Files.writeString(dir.resolve("inventory-ledger.log"), lines, StandardCharsets.UTF_8);
+    }
+
+    private long journalSize() {
+        try {
+            return Files.size(dir.resolve("inventory-ledger.log"));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
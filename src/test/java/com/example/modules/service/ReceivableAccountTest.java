@@ -0,0 +1,65 @@
+package com.example.modules.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * 应收账款账龄：收款按先进先出冲抵最早的欠款，多收的款项冲抵之后的欠款
+ */
+class ReceivableAccountTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+
+    @Test
+    void bucketsOpenChargesByAge() {
+        ReceivableService.Account account = new ReceivableService.Account();
+        account.apply(TODAY.minusDays(100), amount(10));
+        account.apply(TODAY.minusDays(75), amount(20));
+        account.apply(TODAY.minusDays(45), amount(30));
+        account.apply(TODAY.minusDays(30), amount(40));
+        account.apply(TODAY, amount(50));
+
+        assertBuckets(account, 90, 30, 20, 10);
+    }
+
+    @Test
+    void paymentSettlesOldestChargesFirst() {
+        ReceivableService.Account account = new ReceivableService.Account();
+        account.apply(TODAY.minusDays(100), amount(10));
+        account.apply(TODAY.minusDays(75), amount(20));
+        account.apply(TODAY.minusDays(10), amount(30));
+
+        // 结清90天以上的10，61-90天的20剩下5
+        account.apply(TODAY, amount(-25));
+
+        assertBuckets(account, 30, 0, 5, 0);
+    }
+
+    @Test
+    void overpaymentOffsetsLaterCharges() {
+        ReceivableService.Account account = new ReceivableService.Account();
+        account.apply(TODAY.minusDays(40), amount(100));
+        account.apply(TODAY.minusDays(20), amount(-150));
+        assertBuckets(account, 0, 0, 0, 0);
+
+        // 预收50先冲抵之后的欠款
+        account.apply(TODAY.minusDays(10), amount(30));
+        assertBuckets(account, 0, 0, 0, 0);
+        account.apply(TODAY.minusDays(5), amount(30));
+        assertBuckets(account, 10, 0, 0, 0);
+    }
+
+    private static void assertBuckets(ReceivableService.Account account, int days0To30, int days31To60,
+                                      int days61To90, int over90) {
+        assertArrayEquals(new BigDecimal[]{amount(days0To30), amount(days31To60), amount(days61To90), amount(over90)},
+                          account.aging(TODAY));
+    }
+
+    private static BigDecimal amount(int value) {
+        return BigDecimal.valueOf(value);
+    }
+}
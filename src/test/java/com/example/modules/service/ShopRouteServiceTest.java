@@ -0,0 +1,96 @@
+package com.example.modules.service;
+
+import com.example.modules.dto.shop.ShopRouteDto;
+import com.example.modules.utils.GeoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 配送路线规划：店铺都在赤道上，距离与经度差成正比，最短路线可以直接算出
+ */
+class ShopRouteServiceTest {
+
+    private final ShopGeoIndex shopGeoIndex = mock(ShopGeoIndex.class);
+
+    private final ShopRouteService service = new ShopRouteService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "shopGeoIndex", shopGeoIndex);
+        ReflectionTestUtils.setField(service, "timeBudgetMillis", 2000L);
+        ReflectionTestUtils.setField(service, "parallelThreshold", 1000);
+        ReflectionTestUtils.setField(service, "starts", 1);
+    }
+
+    @Test
+    void improvesNearestNeighbourRoute() {
+        // 从0出发，最近邻依次走1、4、-2.5，共10.5；最短为-2.5、1、4，共9
+        shop(1, 0.01);
+        shop(2, -0.025);
+        shop(3, 0.04);
+
+        ShopRouteDto route = service.plan(List.of(1, 2, 3), 0.0, 0.0);
+
+        assertEquals(List.of(2, 1, 3), ids(route));
+        assertEquals(GeoUtils.distance(0, 0, 0, 0.105), route.getInitialDistance(), 0.01);
+        assertEquals(GeoUtils.distance(0, 0, 0, 0.09), route.getTotalDistance(), 0.01);
+        assertFalse(route.isTimedOut());
+    }
+
+    @Test
+    void sortsShopsOnALine() {
+        // 乱序的共线店铺，从一端出发时最短路线按经度顺序访问
+        int[] order = {7, 2, 9, 4, 0, 5, 8, 1, 6, 3};
+        for (int id : order) {
+            shop(id + 1, 0.01 * id);
+        }
+
+        ShopRouteDto route = service.plan(List.of(8, 3, 10, 5, 1, 6, 9, 2, 7, 4), 0.0, -0.01);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids(route));
+        assertEquals(GeoUtils.distance(0, -0.01, 0, 0.09), route.getTotalDistance(), 0.01);
+        assertTrue(route.getTotalDistance() <= route.getInitialDistance() + 0.01);
+        double legs = route.getStops()
+                           .stream()
+                           .mapToDouble(ShopRouteDto.Stop::getDistance)
+                           .sum();
+        assertEquals(route.getTotalDistance(), legs, 0.01);
+    }
+
+    @Test
+    void startsFromFirstShopWithoutDepot() {
+        shop(1, 0.0);
+        shop(2, 0.03);
+        shop(3, 0.01);
+        shop(4, 0.02);
+
+        ShopRouteDto route = service.plan(List.of(1, 2, 3, 4, 2), null, null);
+
+        assertEquals(List.of(1, 3, 4, 2), ids(route));
+        assertEquals(0, route.getStops()
+                             .getFirst()
+                             .getDistance());
+    }
+
+    private void shop(int id, double lng) {
+        when(shopGeoIndex.get(id)).thenReturn(new ShopGeoIndex.Point(id, "店铺" + id, null, BigDecimal.valueOf(lng),
+                                                                     BigDecimal.ZERO, lng, 0));
+    }
+
+    private static List<Integer> ids(ShopRouteDto route) {
+        return route.getStops()
+                    .stream()
+                    .map(ShopRouteDto.Stop::getId)
+                    .toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.modules.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 批次号生成：号段预留、超过号段的批量请求和跨天
+ */
+class BatchNumberGeneratorTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 6, 1);
+
+    private final SequenceTable table = new SequenceTable();
+
+    private final BatchNumberGenerator generator = new BatchNumberGenerator(table, mock(PlatformTransactionManager.class));
+
+    /**
+     * 内存中的batch_number_sequence表，batch表中当天已有的最大序号由existing指定
+     */
+    private static final class SequenceTable extends JdbcTemplate {
+        private final Map<Object, Integer> nextValues = new HashMap<>();
+        private int existing;
+        private int reservations;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            Integer next = nextValues.get(args[0]);
+            return next == null ? List.of() : List.of((T) next);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.contains("INSERT IGNORE")) {
+                return nextValues.putIfAbsent(args[0], existing + 1) == null ? 1 : 0;
+            }
+            nextValues.put(args[1], (Integer) args[0]);
+            reservations++;
+            return 1;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(generator, "blockSize", 20);
+        today(DAY);
+    }
+
+    @Test
+    void allocatesFromReservedBlock() {
+        table.existing = 5;
+
+        assertEquals(List.of("PRD20240601006", "PRD20240601007", "PRD20240601008"), generator.generateBatchNumbers(3));
+        assertEquals("PRD20240601009", generator.generateBatchNumber());
+        // 一个号段只预留一次，序号表前进一整段
+        assertEquals(1, table.reservations);
+        assertEquals(26, table.nextValues.get(DAY));
+    }
+
+    @Test
+    void reservesNextBlockWhenExhausted() {
+        List<String> first = generator.generateBatchNumbers(20);
+        assertEquals("PRD20240601020", first.getLast());
+
+        assertEquals("PRD20240601021", generator.generateBatchNumber());
+        assertEquals(2, table.reservations);
+        assertEquals(41, table.nextValues.get(DAY));
+    }
+
+    @Test
+    void reservesContiguousRangeForLargeRequest() {
+        assertEquals("PRD20240601001", generator.generateBatchNumber());
+
+        // 超过号段的请求单独预留连续序号，不占用当前号段
+        List<String> numbers = generator.generateBatchNumbers(25);
+        assertEquals(IntStream.rangeClosed(21, 45)
+                              .mapToObj(i -> "PRD20240601" + String.format("%03d", i))
+                              .toList(), numbers);
+        assertEquals("PRD20240601002", generator.generateBatchNumber());
+        assertEquals(46, table.nextValues.get(DAY));
+    }
+
+    @Test
+    void startsNewSequenceOnNextDay() {
+        assertEquals("PRD20240601001", generator.generateBatchNumber());
+
+        today(DAY.plusDays(1));
+        assertEquals("PRD20240602001", generator.generateBatchNumber());
+        assertEquals("PRD20240602002", generator.generateBatchNumber());
+
+        // 之前日期的序号已丢弃
+        Map<?, ?> sequences = (Map<?, ?>) ReflectionTestUtils.getField(generator, "sequences");
+        assertEquals(List.of(DAY.plusDays(1)), List.copyOf(sequences.keySet()));
+    }
+
+    private void today(LocalDate date) {
+        ZoneId zone = ZoneId.systemDefault();
+        ReflectionTestUtils.setField(generator, "clock", Clock.fixed(date.atStartOfDay(zone)
+                                                                         .toInstant(), zone));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.modules.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内存文本搜索：排序、字段权重、模糊匹配和增删
+ */
+class TextSearchIndexTest {
+
+    @Test
+    void ranksExactBeforePrefixBeforeContains() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1}, 0.5);
+        index.put(1, "contains", "老王超市");
+        index.put(2, "prefix", "王超市分店");
+        index.put(3, "exact", "王超市");
+        index.put(4, "other", "李记便利店");
+
+        assertEquals(List.of("exact", "prefix", "contains"), index.search("王超市", 10));
+    }
+
+    @Test
+    void prefersShorterFieldOnEqualScore() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1}, 0.5);
+        index.put(1, "long", "便利店旗舰店总店");
+        index.put(2, "short", "便利店总店");
+
+        assertEquals(List.of("short", "long"), index.search("便利店", 10));
+    }
+
+    @Test
+    void appliesFieldWeights() {
+        // 名称权重高于地址：名称包含的排在地址完全相同的前面
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1, 0.2}, 0.5);
+        index.put(1, "address", "张三商行", "人民路");
+        index.put(2, "name", "人民路百货", "解放路");
+
+        assertEquals(List.of("name", "address"), index.search("人民路", 10));
+    }
+
+    @Test
+    void ignoresCaseAndWhitespace() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1, 1}, 0.5);
+        index.put(1, "shop", "王超市", "WCS");
+
+        assertEquals(List.of("shop"), index.search(" wc s ", 10));
+    }
+
+    @Test
+    void fallsBackToFuzzyMatchAboveThreshold() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1}, 0.5);
+        index.put(1, "typo", "红星批发部");
+        index.put(2, "far", "红旗饭店");
+
+        // 查询两字组：红星、星批、批市、市场；"红星批发部"共有2个（0.5），"红旗饭店"没有
+        assertEquals(List.of("typo"), index.search("红星批市场", 10));
+        // 共有比例不足阈值时不返回
+        assertTrue(index.search("红星超市商场", 10)
+                        .isEmpty());
+    }
+
+    @Test
+    void exactMatchesRankAboveFuzzyMatches() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1}, 0.3);
+        index.put(1, "fuzzy", "东方食品店");
+        index.put(2, "exact", "东方食品批发");
+
+        assertEquals(List.of("exact", "fuzzy"), index.search("东方食品批发", 10));
+    }
+
+    @Test
+    void pagesResults() {
+        TextSearchIndex<Integer> index = new TextSearchIndex<>(new double[]{1}, 0.5);
+        for (int id = 1; id <= 5; id++) {
+            index.put(id, id, "超市" + id);
+        }
+
+        assertEquals(List.of(3, 4), index.search("超市", 2, 2));
+    }
+
+    @Test
+    void replacesAndRemovesEntries() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(new double[]{1}, 0.5);
+        index.put(1, "old", "老店");
+        index.put(1, "new", "新店");
+
+        assertTrue(index.search("老店", 10)
+                        .isEmpty());
+        assertEquals(List.of("new"), index.search("新店", 10));
+
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertTrue(index.search("新店", 10)
+                        .isEmpty());
+    }
+}